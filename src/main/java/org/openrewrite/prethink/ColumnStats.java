@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of one column of a table, gathered as its rows stream by in constant memory: the
+ * number of rows and of missing values, an estimate of the number of distinct values, the most
+ * frequent values and, for numeric columns, the smallest and largest value.
+ * <p>
+ * Distinct values are estimated with a HyperLogLog sketch of {@code 2^}{@link #PRECISION}
+ * registers, within about 3% for large counts and exact in practice for small ones. Frequent
+ * values are tracked with the space-saving algorithm over {@link #COUNTERS} counters, which finds
+ * every value that occurs in more than {@code 1/COUNTERS} of the rows.
+ */
+final class ColumnStats {
+
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    static final int COUNTERS = 16;
+
+    private final byte[] registers = new byte[REGISTERS];
+    private final Map<String, long[]> counters = new HashMap<>(COUNTERS * 2);
+
+    private long rows;
+    private long nulls;
+
+    private @Nullable BigDecimal min;
+    private @Nullable BigDecimal max;
+    private boolean numeric = true;
+
+    void add(@Nullable Object value) {
+        rows++;
+        if (value == null || value instanceof CharSequence && ((CharSequence) value).length() == 0) {
+            nulls++;
+            return;
+        }
+        String text = value.toString();
+
+        long hash = Hashing.hash(text);
+        int register = (int) (hash >>> (64 - PRECISION));
+        byte rank = (byte) Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, 64 - PRECISION + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+
+        // Each counter holds a count and the most it may overestimate it by.
+        long[] counter = counters.get(text);
+        if (counter != null) {
+            counter[0]++;
+        } else if (counters.size() < COUNTERS) {
+            counters.put(text, new long[]{1, 0});
+        } else {
+            // Replace the least frequent value, which the new one may have occurred as often as.
+            Map.Entry<String, long[]> least = null;
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                if (least == null || entry.getValue()[0] < least.getValue()[0]) {
+                    least = entry;
+                }
+            }
+            long evicted = least.getValue()[0];
+            counters.remove(least.getKey());
+            counters.put(text, new long[]{evicted + 1, evicted});
+        }
+
+        if (numeric) {
+            BigDecimal number = toNumber(value);
+            if (number == null) {
+                numeric = false;
+                min = null;
+                max = null;
+            } else {
+                min = min == null || number.compareTo(min) < 0 ? number : min;
+                max = max == null || number.compareTo(max) > 0 ? number : max;
+            }
+        }
+    }
+
+    private static @Nullable BigDecimal toNumber(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        } else if ((value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue())) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Number) {
+            return new BigDecimal(value.toString());
+        }
+        return null;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    long getNulls() {
+        return nulls;
+    }
+
+    long estimateDistinct() {
+        if (rows == nulls) {
+            return 0;
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // Linear counting is more accurate while many registers are still empty.
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.max(1, Math.min(Math.round(estimate), rows - nulls));
+    }
+
+    /**
+     * Up to {@code k} of the most frequent values, most frequent first, with the number of rows
+     * they are certain to occur in. Values not certain to occur more than once are left out, as
+     * they say nothing about the shape of the column.
+     */
+    List<Map.Entry<String, Long>> topValues(int k) {
+        List<Map.Entry<String, Long>> top = new ArrayList<>();
+        for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+            long guaranteed = counter.getValue()[0] - counter.getValue()[1];
+            if (guaranteed > 1) {
+                top.add(new AbstractMap.SimpleImmutableEntry<>(counter.getKey(), guaranteed));
+            }
+        }
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return top.size() > k ? top.subList(0, k) : top;
+    }
+
+    /**
+     * The smallest value of a numeric column, or {@code null} when the column isn't numeric.
+     */
+    @Nullable BigDecimal getMin() {
+        return numeric ? min : null;
+    }
+
+    @Nullable BigDecimal getMax() {
+        return numeric ? max : null;
+    }
+}
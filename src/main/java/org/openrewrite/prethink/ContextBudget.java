@@ -0,0 +1,222 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A cap on the total size of the tables exported by one {@link ExportContext}, measured either in
+ * UTF-8 bytes or in estimated tokens (see {@link ContextManifest#estimateTokens}).
+ * <p>
+ * Written as a number with an optional unit: {@code 2MB}, {@code 512KB} or {@code 100000B} for
+ * bytes, and {@code 200k tokens} or {@code 150000 tokens} for tokens.
+ */
+@Value
+class ContextBudget {
+
+    private static final Pattern BUDGET = Pattern.compile(
+            "(\\d+(?:\\.\\d+)?)\\s*(kb|mb|gb|b|k|m)?\\s*(tokens?)?", Pattern.CASE_INSENSITIVE);
+
+    long limit;
+
+    boolean tokens;
+
+    /**
+     * Parse a budget, returning {@code null} when none is given.
+     *
+     * @throws IllegalArgumentException when the budget is malformed
+     */
+    static @Nullable ContextBudget parse(@Nullable String budget) {
+        if (budget == null || budget.trim().isEmpty()) {
+            return null;
+        }
+        Matcher matcher = BUDGET.matcher(budget.trim());
+        if (matcher.matches()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            String unit = matcher.group(2) == null ? "" : matcher.group(2).toLowerCase(Locale.ROOT);
+            if (matcher.group(3) != null) {
+                // Token counts scale by powers of ten
+                switch (unit) {
+                    case "":
+                        return new ContextBudget((long) amount, true);
+                    case "k":
+                        return new ContextBudget((long) (amount * 1_000), true);
+                    case "m":
+                        return new ContextBudget((long) (amount * 1_000_000), true);
+                    default:
+                        break;
+                }
+            } else {
+                switch (unit) {
+                    case "":
+                    case "b":
+                        return new ContextBudget((long) amount, false);
+                    case "kb":
+                        return new ContextBudget((long) (amount * 1024), false);
+                    case "mb":
+                        return new ContextBudget((long) (amount * 1024 * 1024), false);
+                    case "gb":
+                        return new ContextBudget((long) (amount * 1024 * 1024 * 1024), false);
+                    default:
+                        break;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid context budget '" + budget + "', expected e.g. '2MB' or '200k tokens'");
+    }
+
+    /**
+     * The cost of {@code text} against this budget.
+     */
+    long cost(CharSequence text) {
+        return tokens ? ContextManifest.estimateTokens(text) : RenderedContext.utf8Length(text);
+    }
+
+    /**
+     * Split this budget across tables of the given full sizes. Allocation is max-min fair: a table
+     * smaller than an equal share of what is left is kept whole, and whatever it leaves unused is
+     * shared among the larger tables, so small tables are never truncated to make room for a large
+     * one and every truncated table gets the same allowance.
+     */
+    long[] allocate(long[] sizes) {
+        long[] allowances = new long[sizes.length];
+        Integer[] bySize = new Integer[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, Comparator.comparingLong(i -> sizes[i]));
+        long remaining = limit;
+        for (int n = 0; n < bySize.length; n++) {
+            int table = bySize[n];
+            long share = remaining / (bySize.length - n);
+            allowances[table] = Math.min(sizes[table], share);
+            remaining -= allowances[table];
+        }
+        return allowances;
+    }
+
+    /**
+     * Keep the highest ranked rows of a rendered table that fit in {@code allowance} alongside its
+     * header, in their original order. Rows are taken in rank order until the next one doesn't
+     * fit, and ties keep the earlier row, so the result is deterministic.
+     *
+     * @param ends     the end offsets of the header and of every row, see {@link ExportFormat#recordEnds}
+     * @param classIds the {@link Ranking} ids of the classes each row mentions, {@code classColumns}
+     *                 per row, or -1 where a row mentions none
+     */
+    Pruned prune(String text, int[] ends, int[] classIds, int classColumns, Ranking ranking, long allowance) {
+        int rows = ends.length - 1;
+        boolean ranked = classColumns > 0 && classIds.length == rows * classColumns;
+
+        long[] ranks = new long[rows];
+        Integer[] order = new Integer[rows];
+        for (int row = 0; row < rows; row++) {
+            order[row] = row;
+            if (ranked) {
+                ranks[row] = ranking.rank(classIds, row * classColumns, (row + 1) * classColumns);
+            }
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(row -> -ranks[row]).thenComparingInt(row -> row));
+
+        boolean[] keep = new boolean[rows];
+        long available = allowance - cost(CharBuffer.wrap(text, 0, ends[0]));
+        long used = 0;
+        int kept = 0;
+        for (int row : order) {
+            long cost = cost(CharBuffer.wrap(text, ends[row], ends[row + 1]));
+            if (used + cost > available) {
+                break;
+            }
+            keep[row] = true;
+            used += cost;
+            kept++;
+        }
+
+        StringBuilder sb = new StringBuilder(text.length());
+        sb.append(text, 0, ends[0]);
+        int[] keptRows = new int[kept];
+        for (int row = 0, k = 0; row < rows; row++) {
+            if (keep[row]) {
+                sb.append(text, ends[row], ends[row + 1]);
+                keptRows[k++] = row;
+            }
+        }
+        return new Pruned(sb.toString(), keptRows);
+    }
+
+    @Value
+    static class Pruned {
+        String text;
+
+        /**
+         * The indices of the data rows that were kept, ascending.
+         */
+        int[] keptRows;
+
+        long getRows() {
+            return keptRows.length;
+        }
+    }
+
+    /**
+     * Ranks rows by how often the classes they mention are referenced across all of a context's
+     * tables, so that rows about central classes survive pruning over rows about peripheral ones.
+     */
+    static class Ranking {
+        private final Map<String, Integer> idsByClass = new HashMap<>();
+        private int[] references = new int[64];
+
+        /**
+         * Count a reference to a class, returning its id, or -1 for an empty value.
+         */
+        int reference(String className) {
+            if (className.isEmpty()) {
+                return -1;
+            }
+            Integer id = idsByClass.get(className);
+            if (id == null) {
+                id = idsByClass.size();
+                idsByClass.put(className, id);
+                if (id == references.length) {
+                    references = Arrays.copyOf(references, id * 2);
+                }
+            }
+            references[id]++;
+            return id;
+        }
+
+        long rank(int[] classIds, int from, int to) {
+            long rank = 0;
+            for (int i = from; i < to; i++) {
+                if (classIds[i] >= 0) {
+                    rank += references[classIds[i]];
+                }
+            }
+            return rank;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return tokens ? limit + " tokens" : limit + " bytes";
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Per-class context cards of one {@link ExportContext}: for every class its tables mention, the
+ * rows of each table that mention it, gathered in one markdown card so that an agent learns
+ * everything about a class from one small file instead of reading every table in full.
+ * <p>
+ * The tables are joined on their class columns as they stream out of the store, each row going
+ * straight to the card of every class it mentions, so no table has to be held whole to be joined.
+ * Cards are grouped by package in one file, with an index from each class to its card.
+ */
+final class ContextCards {
+
+    static final String INDEX = "index.md";
+
+    static final String CARDS = "cards.md";
+
+    private final String title;
+
+    /**
+     * Card sections by package, then class, then table, in the order the tables stream.
+     */
+    private final Map<String, Map<String, Map<String, StringBuilder>>> sectionsByPackage = new TreeMap<>();
+
+    ContextCards(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Start joining the rows of a table with the given headers on its {@code classColumns}.
+     */
+    Table table(String displayName, String[] headers, int[] classColumns) {
+        return new Table(displayName, headers, classColumns);
+    }
+
+    boolean isEmpty() {
+        return sectionsByPackage.isEmpty();
+    }
+
+    /**
+     * Render the cards and their index, keyed by file name, the index first.
+     */
+    Map<String, String> render() {
+        StringBuilder index = new StringBuilder();
+        index.append("# ").append(title).append(" Cards\n\n");
+        index.append("Everything the tables of ").append(title).append(" say about a class, gathered in one card ")
+                .append("per class and grouped by package in [`").append(CARDS).append("`](").append(CARDS).append(").\n\n");
+        index.append("| Class | Card |\n");
+        index.append("|-------|------|\n");
+
+        StringBuilder cards = new StringBuilder();
+        cards.append("# ").append(title).append(" Cards\n\n");
+        for (Map.Entry<String, Map<String, Map<String, StringBuilder>>> pkg : sectionsByPackage.entrySet()) {
+            cards.append("## ").append(pkg.getKey()).append("\n\n");
+            for (Map.Entry<String, Map<String, StringBuilder>> cls : pkg.getValue().entrySet()) {
+                cards.append("### ").append(cls.getKey()).append("\n\n");
+                for (StringBuilder section : cls.getValue().values()) {
+                    cards.append(section).append('\n');
+                }
+                index.append("| ").append(cls.getKey()).append(" | [`").append(CARDS).append("`](").append(CARDS)
+                        .append("#").append(anchor(cls.getKey())).append(") |\n");
+            }
+        }
+
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put(INDEX, index.toString());
+        files.put(CARDS, cards.toString());
+        return files;
+    }
+
+    /**
+     * The GitHub-style anchor of a heading.
+     */
+    private static String anchor(String heading) {
+        StringBuilder anchor = new StringBuilder(heading.length());
+        for (int i = 0; i < heading.length(); i++) {
+            char c = heading.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                anchor.append(Character.toLowerCase(c));
+            } else if (c == ' ') {
+                anchor.append('-');
+            }
+        }
+        return anchor.toString();
+    }
+
+    private static String cell(String value) {
+        return value.replace("|", "\\|").replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * The rows of one table, added to the cards as they stream by.
+     */
+    final class Table {
+        private final String displayName;
+        private final String header;
+        private final int[] classColumns;
+
+        private Table(String displayName, String[] headers, int[] classColumns) {
+            this.displayName = displayName;
+            this.classColumns = classColumns;
+            StringBuilder header = new StringBuilder();
+            header.append("#### ").append(displayName).append("\n\n|");
+            for (String h : headers) {
+                header.append(' ').append(cell(h)).append(" |");
+            }
+            header.append("\n|");
+            for (int i = 0; i < headers.length; i++) {
+                header.append("---|");
+            }
+            this.header = header.append('\n').toString();
+        }
+
+        /**
+         * Add a row to the card of every class it mentions, once per class. Classes are read from
+         * the raw values, so that a truncated value can't join the row to the wrong card.
+         */
+        void add(@Nullable Object[] rawValues, String[] values) {
+            String row = null;
+            for (int c = 0; c < classColumns.length; c++) {
+                Object classValue = rawValues[classColumns[c]];
+                String className = classValue == null ? "" : classValue.toString();
+                if (className.isEmpty() || isRepeated(rawValues, c)) {
+                    continue;
+                }
+                if (row == null) {
+                    StringBuilder sb = new StringBuilder("|");
+                    for (String value : values) {
+                        sb.append(' ').append(cell(value)).append(" |");
+                    }
+                    row = sb.append('\n').toString();
+                }
+                String packageName = Partitioning.packageName(className);
+                sectionsByPackage
+                        .computeIfAbsent(packageName.isEmpty() ? Partitioning.ROOT : packageName, k -> new TreeMap<>())
+                        .computeIfAbsent(className, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(displayName, k -> new StringBuilder(header))
+                        .append(row);
+            }
+        }
+
+        private boolean isRepeated(@Nullable Object[] rawValues, int c) {
+            for (int earlier = 0; earlier < c; earlier++) {
+                if (Objects.equals(rawValues[classColumns[earlier]], rawValues[classColumns[c]])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
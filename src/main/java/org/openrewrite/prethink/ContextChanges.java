@@ -0,0 +1,336 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+import org.openrewrite.Column;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * The changes to the tables of one {@link ExportContext} since the previous render, as a markdown
+ * report for code review: which rows were added, removed or changed.
+ * <p>
+ * Rows are matched on their table's natural key, the first of {@link #NATURAL_KEYS} whose columns
+ * the table exports, or on the whole row when it has none of them. Both versions of a table are
+ * read into hash maps by key, so the comparison takes time linear in the size of the tables.
+ */
+final class ContextChanges {
+
+    /**
+     * Natural keys by the field names of their columns, the most specific first.
+     */
+    private static final List<List<String>> NATURAL_KEYS = Arrays.asList(
+            Collections.singletonList("entityId"),
+            Arrays.asList("className", "signature"),
+            Arrays.asList("testClass", "testMethod", "implementationClass", "implementationMethod"),
+            Collections.singletonList("sourceSetId"),
+            Collections.singletonList("sourcePath")
+    );
+
+    /**
+     * The most keys listed per kind of change in a table, beyond which only their number is given.
+     */
+    private static final int MAX_LISTED = 50;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String title;
+    private final List<Table> tables = new ArrayList<>();
+    private boolean previous;
+
+    ContextChanges(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Start comparing the versions of a table that exports the given {@code @Column} fields.
+     */
+    Table table(String displayName, List<Field> columnFields) {
+        Table table = new Table(displayName, columnFields);
+        tables.add(table);
+        return table;
+    }
+
+    String render() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# ").append(title).append(" Changes\n\n");
+        if (!previous) {
+            sb.append("There is no previous render of ").append(title).append(" to compare with.\n");
+            return sb.toString();
+        }
+        sb.append("Changes to the tables of ").append(title)
+                .append(" since the previous render. Rows are matched on the key of their table, so a row whose ")
+                .append("other columns changed is changed rather than removed and added again.\n\n");
+        sb.append("| Table | Key | Added | Removed | Changed | Unchanged |\n");
+        sb.append("|-------|-----|-------|---------|---------|-----------|\n");
+        List<Diff> diffs = new ArrayList<>(tables.size());
+        for (Table table : tables) {
+            Diff diff = table.diff();
+            diffs.add(diff);
+            sb.append("| ").append(table.displayName)
+                    .append(" | ").append(table.keyDescription())
+                    .append(" | ").append(diff.added.size())
+                    .append(" | ").append(diff.removed.size())
+                    .append(" | ").append(diff.changed.size())
+                    .append(" | ").append(diff.unchanged).append(" |\n");
+        }
+        sb.append('\n');
+
+        for (int i = 0; i < tables.size(); i++) {
+            Diff diff = diffs.get(i);
+            if (diff.added.isEmpty() && diff.removed.isEmpty() && diff.changed.isEmpty()) {
+                continue;
+            }
+            sb.append("## ").append(tables.get(i).displayName).append("\n\n");
+            list(sb, "Added", diff.added);
+            list(sb, "Removed", diff.removed);
+            list(sb, "Changed", diff.changed);
+        }
+        return sb.toString();
+    }
+
+    private static void list(StringBuilder sb, String heading, List<String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        sb.append("### ").append(heading).append("\n\n");
+        for (int i = 0; i < Math.min(entries.size(), MAX_LISTED); i++) {
+            sb.append("- ").append(entries.get(i)).append('\n');
+        }
+        if (entries.size() > MAX_LISTED) {
+            sb.append("- … and ").append(entries.size() - MAX_LISTED).append(" more\n");
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * The two versions of one table, each read into a map from key to the rows with that key.
+     */
+    final class Table {
+        private final String displayName;
+        private final String[] headers;
+        private final Map<String, Integer> columnsByName = new HashMap<>();
+        private final int[] keyColumns;
+
+        private final Map<String, List<String[]>> previousRows = new LinkedHashMap<>();
+        private final Map<String, List<String[]>> currentRows = new LinkedHashMap<>();
+
+        private Table(String displayName, List<Field> columnFields) {
+            this.displayName = displayName;
+            this.headers = new String[columnFields.size()];
+            Map<String, Integer> columnsByField = new HashMap<>();
+            for (int i = 0; i < columnFields.size(); i++) {
+                headers[i] = columnFields.get(i).getAnnotation(Column.class).displayName();
+                columnsByName.put(headers[i], i);
+                columnsByName.put(columnFields.get(i).getName(), i);
+                columnsByField.put(columnFields.get(i).getName(), i);
+            }
+            int[] keyColumns = new int[0];
+            for (List<String> naturalKey : NATURAL_KEYS) {
+                if (columnsByField.keySet().containsAll(naturalKey)) {
+                    keyColumns = naturalKey.stream().mapToInt(columnsByField::get).toArray();
+                    break;
+                }
+            }
+            this.keyColumns = keyColumns;
+        }
+
+        /**
+         * Read a file of the previous render. One without rows is only a placeholder awaiting its
+         * first render, since a render omits the tables without rows.
+         */
+        void previous(String text, ExportFormat format) {
+            if (read(text, format, previousRows) > 0) {
+                previous = true;
+            }
+        }
+
+        void current(String text, ExportFormat format) {
+            read(text, format, currentRows);
+        }
+
+        private int read(String text, ExportFormat format, Map<String, List<String[]>> rows) {
+            int read = 0;
+            if (format == ExportFormat.NDJSON) {
+                for (String line : text.split("\n")) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    JsonNode object;
+                    try {
+                        object = OBJECT_MAPPER.readTree(line);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    String[] row = new String[headers.length];
+                    Arrays.fill(row, "");
+                    for (Iterator<Map.Entry<String, JsonNode>> it = object.fields(); it.hasNext(); ) {
+                        Map.Entry<String, JsonNode> field = it.next();
+                        Integer column = columnsByName.get(field.getKey());
+                        if (column != null && !field.getValue().isNull()) {
+                            row[column] = field.getValue().asText();
+                        }
+                    }
+                    add(row, rows);
+                    read++;
+                }
+                return read;
+            }
+
+            CsvParserSettings settings = new CsvParserSettings();
+            settings.setMaxCharsPerColumn(-1);
+            settings.setNullValue("");
+            settings.setEmptyValue("");
+            // Values are never comments, even when they start with a '#'.
+            settings.getFormat().setComment('\0');
+            CsvParser parser = new CsvParser(settings);
+            parser.beginParsing(new StringReader(text));
+            String[] header = parser.parseNext();
+            if (header == null) {
+                return 0;
+            }
+            int[] columnOf = new int[header.length];
+            for (int i = 0; i < header.length; i++) {
+                columnOf[i] = columnsByName.getOrDefault(header[i], -1);
+            }
+            for (String[] record = parser.parseNext(); record != null; record = parser.parseNext()) {
+                String[] row = new String[headers.length];
+                Arrays.fill(row, "");
+                for (int i = 0; i < Math.min(record.length, columnOf.length); i++) {
+                    if (columnOf[i] >= 0) {
+                        row[columnOf[i]] = record[i];
+                    }
+                }
+                add(row, rows);
+                read++;
+            }
+            return read;
+        }
+
+        private void add(String[] row, Map<String, List<String[]>> rows) {
+            rows.computeIfAbsent(key(row), k -> new ArrayList<>(1)).add(row);
+        }
+
+        private String key(String[] row) {
+            if (keyColumns.length == 0) {
+                return String.join("\u0000", row);
+            }
+            StringBuilder key = new StringBuilder();
+            for (int column : keyColumns) {
+                key.append(row[column]).append('\u0000');
+            }
+            return key.toString();
+        }
+
+        String keyDescription() {
+            if (keyColumns.length == 0) {
+                return "whole row";
+            }
+            StringJoiner description = new StringJoiner(" + ");
+            for (int column : keyColumns) {
+                description.add(headers[column]);
+            }
+            return description.toString();
+        }
+
+        private Diff diff() {
+            Diff diff = new Diff();
+            for (Map.Entry<String, List<String[]>> current : currentRows.entrySet()) {
+                List<String[]> before = previousRows.get(current.getKey());
+                String label = label(current.getValue().get(0));
+                if (before == null) {
+                    diff.added.add(label);
+                } else if (sameRows(before, current.getValue())) {
+                    diff.unchanged++;
+                } else if (before.size() == 1 && current.getValue().size() == 1) {
+                    diff.changed.add(label + ": " + changedColumns(before.get(0), current.getValue().get(0)));
+                } else {
+                    diff.changed.add(label + ": " + before.size() + " rows before, " + current.getValue().size() + " now");
+                }
+            }
+            for (Map.Entry<String, List<String[]>> previous : previousRows.entrySet()) {
+                if (!currentRows.containsKey(previous.getKey())) {
+                    diff.removed.add(label(previous.getValue().get(0)));
+                }
+            }
+            return diff;
+        }
+
+        private String label(String[] row) {
+            StringJoiner label = new StringJoiner(" ");
+            if (keyColumns.length == 0) {
+                for (String value : row) {
+                    if (!value.isEmpty()) {
+                        label.add(value);
+                    }
+                }
+            } else {
+                for (int column : keyColumns) {
+                    label.add(row[column]);
+                }
+            }
+            return "`" + label.toString().replace('`', '\'').replace('\n', ' ') + "`";
+        }
+
+        private String changedColumns(String[] before, String[] after) {
+            StringJoiner changed = new StringJoiner(", ");
+            for (int i = 0; i < headers.length; i++) {
+                if (!before[i].equals(after[i])) {
+                    changed.add(headers[i]);
+                }
+            }
+            return changed.toString();
+        }
+    }
+
+    /**
+     * Whether two lists hold the same rows, regardless of their order.
+     */
+    private static boolean sameRows(List<String[]> before, List<String[]> after) {
+        if (before.size() != after.size()) {
+            return false;
+        }
+        if (before.size() == 1) {
+            return Arrays.equals(before.get(0), after.get(0));
+        }
+        Map<List<String>, Integer> counts = new HashMap<>();
+        for (String[] row : before) {
+            counts.merge(Arrays.asList(row), 1, Integer::sum);
+        }
+        for (String[] row : after) {
+            Integer count = counts.get(Arrays.asList(row));
+            if (count == null || count == 0) {
+                return false;
+            }
+            counts.put(Arrays.asList(row), count - 1);
+        }
+        return true;
+    }
+
+    private static class Diff {
+        final List<String> added = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+        final List<String> changed = new ArrayList<>();
+        long unchanged;
+    }
+}
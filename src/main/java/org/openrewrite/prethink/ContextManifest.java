@@ -0,0 +1,290 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.text.PlainText;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.openrewrite.PathUtils.separatorsToSystem;
+import static org.openrewrite.PathUtils.separatorsToUnix;
+import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
+import static org.openrewrite.prethink.Prethink.CONTEXT_MANIFEST;
+
+/**
+ * The {@code .moderne/context/manifest.json} file, listing every context file rendered in a run
+ * with its table, row count, size, estimated token count, content hash and render time, so that
+ * recipes and external tools can answer questions about the context without reading the files.
+ * <p>
+ * The manifest is generated as a placeholder in cycle 1 by whichever of {@link ExportContext}
+ * and {@link org.openrewrite.prethink.calm.GenerateCalmArchitecture} runs first, and filled in
+ * cycle 2 from the {@link RenderedContext} they publish. A file keeps its previous render time
+ * while its content hash is unchanged, so that rerunning on an unchanged repository leaves the
+ * manifest untouched.
+ */
+public final class ContextManifest {
+
+    public static final Path MANIFEST_PATH = CONTEXT_DIR.resolve("manifest.json");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private ContextManifest() {
+    }
+
+    @Value
+    public static class Entry {
+        /**
+         * Path of the file, relative to the repository root.
+         */
+        String file;
+
+        /**
+         * The markdown description file of the context a CSV was exported for, if any.
+         */
+        @Nullable
+        String context;
+
+        /**
+         * Fully qualified class name of the data table the file was exported from, if any.
+         */
+        @Nullable
+        String table;
+
+        /**
+         * Number of data rows, for files exported from a data table.
+         */
+        @Nullable
+        Long rows;
+
+        /**
+         * Size of the file in UTF-8 encoded bytes.
+         */
+        long bytes;
+
+        /**
+         * Approximate number of tokens a coding agent spends reading the file, see {@link #estimateTokens}.
+         */
+        long tokens;
+
+        /**
+         * Hex encoded SHA-256 of the file's content.
+         */
+        String hash;
+
+        /**
+         * When the file was rendered, as an ISO-8601 instant.
+         */
+        String renderedAt;
+
+        /**
+         * The {@link TableFingerprint} of the rows the file was rendered from, for files exported
+         * from a data table by an {@link ExportContext} that skips unchanged tables.
+         */
+        @Nullable
+        String fingerprint;
+    }
+
+    static Entry entry(String file, @Nullable String context, @Nullable String table, @Nullable Long rows,
+                       String content, @Nullable String fingerprint) {
+        return new Entry(file, context, table, rows, RenderedContext.utf8Length(content), estimateTokens(content),
+                sha256(content), Instant.now().truncatedTo(ChronoUnit.SECONDS).toString(), fingerprint);
+    }
+
+    /**
+     * The estimated tokens of a context: its markdown description file plus the CSVs exported for
+     * it, or {@code null} when none of them are among {@code files}.
+     */
+    static @Nullable Long contextTokens(List<Entry> files, String contextFile) {
+        Long tokens = null;
+        for (Entry file : files) {
+            if (contextFile.equals(file.getFile()) || contextFile.equals(file.getContext())) {
+                tokens = (tokens == null ? 0 : tokens) + file.getTokens();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Approximate the number of tokens a BPE tokenizer splits {@code text} into, in one pass and
+     * without a vocabulary: a run of ASCII letters costs a token per five letters, a run of digits
+     * a token per three digits, and every other character but a space or tab costs a token of its
+     * own. Spaces and tabs are free because BPE vocabularies merge them into the following word.
+     * This tends to overestimate prose slightly and is close for identifier-heavy CSV content.
+     */
+    static long estimateTokens(CharSequence text) {
+        long tokens = 0;
+        int letters = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                tokens += (digits + 2) / 3;
+                digits = 0;
+                letters++;
+            } else if (c >= '0' && c <= '9') {
+                tokens += (letters + 4) / 5;
+                letters = 0;
+                digits++;
+            } else {
+                tokens += (letters + 4) / 5 + (digits + 2) / 3;
+                letters = 0;
+                digits = 0;
+                if (c != ' ' && c != '\t') {
+                    tokens++;
+                }
+            }
+        }
+        return tokens + (letters + 4) / 5 + (digits + 2) / 3;
+    }
+
+    /**
+     * Whether the caller should generate the manifest placeholder, true for only the first caller
+     * in a run so that several recipes don't each generate the same file.
+     */
+    public static boolean claimPlaceholder(ExecutionContext ctx) {
+        return ctx.computeMessageIfAbsent(CONTEXT_MANIFEST, k -> new AtomicBoolean()).compareAndSet(false, true);
+    }
+
+    public static PlainText placeholder() {
+        return PlainText.builder()
+                .text("{}")
+                .sourcePath(MANIFEST_PATH)
+                .build();
+    }
+
+    /**
+     * Fill the manifest from what was rendered in this run, or delete it (returning {@code null})
+     * when nothing was.
+     */
+    public static @Nullable PlainText fill(PlainText manifest, ExecutionContext ctx) {
+        RenderedContext rendered = RenderedContext.find(ctx);
+        List<Entry> entries = rendered == null ? Collections.emptyList() : rendered.getFiles();
+        if (entries.isEmpty()) {
+            return null;
+        }
+        String content = render(entries, manifest.getText());
+        return content.equals(manifest.getText()) ? manifest : manifest.withText(content);
+    }
+
+    /**
+     * Render the manifest, keeping the render time recorded in {@code previous} for every file
+     * whose content hash is unchanged.
+     */
+    static String render(List<Entry> entries, @Nullable String previous) {
+        Map<String, Entry> previousByFile = new HashMap<>();
+        for (Entry entry : parse(previous)) {
+            previousByFile.put(entry.getFile(), entry);
+        }
+
+        ObjectNode root = OBJECT_MAPPER.createObjectNode();
+        ArrayNode files = root.putArray("files");
+        for (Entry entry : entries) {
+            Entry before = previousByFile.get(entry.getFile());
+            String renderedAt = before != null && before.getHash().equals(entry.getHash()) ?
+                    before.getRenderedAt() : entry.getRenderedAt();
+            ObjectNode file = files.addObject();
+            file.put("path", separatorsToUnix(entry.getFile()));
+            if (entry.getContext() != null) {
+                file.put("context", separatorsToUnix(entry.getContext()));
+            }
+            if (entry.getTable() != null) {
+                file.put("table", entry.getTable());
+            }
+            if (entry.getRows() != null) {
+                file.put("rows", entry.getRows());
+            }
+            file.put("bytes", entry.getBytes());
+            file.put("tokens", entry.getTokens());
+            file.put("hash", entry.getHash());
+            file.put("renderedAt", renderedAt);
+            if (entry.getFingerprint() != null) {
+                file.put("fingerprint", entry.getFingerprint());
+            }
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(root) + "\n";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to render the context manifest", e);
+        }
+    }
+
+    /**
+     * The entries of a manifest, or an empty list when it is absent, a placeholder, or malformed.
+     */
+    public static List<Entry> parse(@Nullable String manifest) {
+        if (manifest == null || manifest.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        JsonNode files;
+        try {
+            files = OBJECT_MAPPER.readTree(manifest).path("files");
+        } catch (JsonProcessingException e) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (JsonNode file : files) {
+            if (!file.path("path").isTextual() || !file.path("hash").isTextual()) {
+                continue;
+            }
+            entries.add(new Entry(
+                    separatorsToSystem(file.path("path").asText()),
+                    file.path("context").isTextual() ? separatorsToSystem(file.path("context").asText()) : null,
+                    file.path("table").isTextual() ? file.path("table").asText() : null,
+                    file.path("rows").isIntegralNumber() ? file.path("rows").asLong() : null,
+                    file.path("bytes").asLong(),
+                    file.path("tokens").asLong(),
+                    file.path("hash").asText(),
+                    file.path("renderedAt").asText(),
+                    file.path("fingerprint").isTextual() ? file.path("fingerprint").asText() : null));
+        }
+        return entries;
+    }
+
+    /**
+     * The hex encoded SHA-256 of the UTF-8 encoding of {@code content}.
+     */
+    static String sha256(String content) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+               .append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
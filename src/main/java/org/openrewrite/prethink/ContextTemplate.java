@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An agent config template compiled into alternating literal and placeholder segments, so that
+ * rendering is a single pass over pre-split segments instead of a search-and-replace per
+ * placeholder.
+ * <p>
+ * Placeholders are written {@code {{NAME}}}, where the name consists of upper case letters,
+ * digits and underscores. Anything else between double braces is kept as literal text.
+ */
+final class ContextTemplate {
+
+    /**
+     * One more literal than placeholders: {@code literals[i]} precedes {@code placeholders[i]}.
+     */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+    private final String source;
+
+    private ContextTemplate(String source, String[] literals, String[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static ContextTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int open = template.indexOf("{{");
+        while (open >= 0) {
+            int close = template.indexOf("}}", open + 2);
+            if (close < 0) {
+                break;
+            }
+            if (isPlaceholderName(template, open + 2, close)) {
+                literals.add(template.substring(literalStart, open));
+                placeholders.add(template.substring(open + 2, close));
+                literalStart = close + 2;
+                open = template.indexOf("{{", literalStart);
+            } else {
+                open = template.indexOf("{{", open + 1);
+            }
+        }
+        literals.add(template.substring(literalStart));
+        return new ContextTemplate(template, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    private static boolean isPlaceholderName(String template, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = template.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The template text this was compiled from.
+     */
+    String getSource() {
+        return source;
+    }
+
+    boolean references(String placeholder) {
+        for (String p : placeholders) {
+            if (p.equals(placeholder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Render the template. Each placeholder's value is resolved once, even if it appears several
+     * times; a placeholder resolving to {@code null} is unknown and rendered verbatim.
+     */
+    String render(Function<String, @Nullable String> values) {
+        String[] resolved = new String[placeholders.length];
+        int length = literalLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = null;
+            for (int j = 0; j < i; j++) {
+                if (placeholders[j].equals(placeholders[i])) {
+                    value = resolved[j];
+                    break;
+                }
+            }
+            if (value == null) {
+                value = values.apply(placeholders[i]);
+            }
+            resolved[i] = value == null ? "{{" + placeholders[i] + "}}" : value;
+            length += resolved[i].length();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]).append(resolved[i]);
+        }
+        return sb.append(literals[placeholders.length]).toString();
+    }
+}
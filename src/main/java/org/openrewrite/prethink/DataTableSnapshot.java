@@ -0,0 +1,307 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.*;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compact binary snapshot of the rows of a {@link DataTableStore}, so that the context can be
+ * rendered again, with other options or templates, without discovering the data tables anew.
+ * <pre>{@code
+ * DataTableSnapshot.write(store, Paths.get("prethink.snapshot"));
+ * DataTableStore restored = DataTableSnapshot.read(Paths.get("prethink.snapshot"));
+ * }</pre>
+ * The snapshot is a gzipped stream of tables, each its data table class, group and the names of
+ * its row fields, followed by its rows as typed values in field order. Rows are streamed to and
+ * from the file one at a time, so a snapshot of any size is written without holding its rows.
+ */
+public final class DataTableSnapshot {
+
+    private static final int MAGIC = 0x50544853; // PTHS
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte NEXT = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+
+    private DataTableSnapshot() {
+    }
+
+    /**
+     * Write every table of the store to {@code file}, replacing it only once the snapshot is
+     * complete, and return the number of rows written.
+     */
+    @SuppressWarnings("unchecked")
+    public static long write(DataTableStore store, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        long rows = 0;
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (DataTable<?> dataTable : store.getDataTables()) {
+                    List<Field> fields = rowFields(dataTable.getType());
+                    out.writeByte(NEXT);
+                    out.writeUTF(dataTable.getClass().getName());
+                    writeValue(out, dataTable.getGroup());
+                    out.writeShort(fields.size());
+                    for (Field field : fields) {
+                        out.writeUTF(field.getName());
+                    }
+                    Class<? extends DataTable<Object>> dtClass = (Class<? extends DataTable<Object>>) dataTable.getClass();
+                    try (Stream<Object> stream = store.getRows(dtClass, dataTable.getGroup())) {
+                        Iterator<Object> it = stream.iterator();
+                        while (it.hasNext()) {
+                            Object row = it.next();
+                            out.writeByte(NEXT);
+                            for (Field field : fields) {
+                                writeValue(out, get(field, row));
+                            }
+                            rows++;
+                        }
+                    }
+                    out.writeByte(END);
+                }
+                out.writeByte(END);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return rows;
+    }
+
+    /**
+     * Read a snapshot into a new in-memory store. Tables whose data table or row class is not on
+     * the classpath are skipped, and fields missing from a snapshot taken of an older row class
+     * are left at their default.
+     *
+     * @throws IOException when the file is not a snapshot, or one of an unsupported version
+     */
+    @SuppressWarnings("unchecked")
+    public static DataTableStore read(Path file) throws IOException {
+        DataTableStore store = new InMemoryDataTableStore();
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a data table snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is a version " + version + " data table snapshot, expected " + VERSION);
+            }
+            while (in.readByte() == NEXT) {
+                String tableClass = in.readUTF();
+                Object group = readValue(in);
+                String[] names = new String[in.readShort()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = in.readUTF();
+                }
+
+                DataTable<Object> dataTable = dataTable(tableClass, group == null ? null : group.toString());
+                RowFactory factory = dataTable == null ? null : RowFactory.of(dataTable.getType(), names);
+                Object[] values = new Object[names.length];
+                while (in.readByte() == NEXT) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = readValue(in);
+                    }
+                    if (factory != null) {
+                        store.insertRow(dataTable, ctx, factory.create(values));
+                    }
+                }
+            }
+        }
+        return store;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static @Nullable DataTable<Object> dataTable(String tableClass, @Nullable String group) {
+        try {
+            Class<?> type = Class.forName(tableClass, true, DataTableSnapshot.class.getClassLoader());
+            DataTable<Object> dataTable = (DataTable<Object>) type.getConstructor(Recipe.class).newInstance(Recipe.noop());
+            return group == null ? dataTable : dataTable.withGroup(group);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The instance fields of a row class, in declaration order, which is the order of the
+     * parameters of its all-args constructor.
+     */
+    private static List<Field> rowFields(Class<?> rowClass) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : rowClass.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static @Nullable Object get(Field field, Object row) {
+        try {
+            return field.get(row);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else {
+            // Strings may exceed the 64KB of writeUTF, and anything else is kept by its string form.
+            byte[] bytes = (value instanceof Enum ? ((Enum<?>) value).name() : value.toString())
+                    .getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static @Nullable Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case STRING:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            default:
+                throw new IOException("Unknown value type " + tag + " in data table snapshot");
+        }
+    }
+
+    /**
+     * Creates rows of one row class from the values of the fields a snapshot names, through the
+     * all-args constructor of the row class.
+     */
+    private static final class RowFactory {
+        private final Constructor<?> constructor;
+        private final Class<?>[] parameterTypes;
+
+        /**
+         * For each constructor parameter, the index of its value in a snapshot row, or -1.
+         */
+        private final int[] valueIndex;
+
+        private RowFactory(Constructor<?> constructor, int[] valueIndex) {
+            this.constructor = constructor;
+            this.parameterTypes = constructor.getParameterTypes();
+            this.valueIndex = valueIndex;
+        }
+
+        static @Nullable RowFactory of(Class<?> rowClass, String[] names) {
+            List<Field> fields = rowFields(rowClass);
+            Class<?>[] types = new Class<?>[fields.size()];
+            int[] valueIndex = new int[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                types[i] = fields.get(i).getType();
+                valueIndex[i] = Arrays.asList(names).indexOf(fields.get(i).getName());
+            }
+            try {
+                Constructor<?> constructor = rowClass.getDeclaredConstructor(types);
+                constructor.setAccessible(true);
+                return new RowFactory(constructor, valueIndex);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        Object create(@Nullable Object[] values) throws IOException {
+            Object[] args = new Object[parameterTypes.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = coerce(valueIndex[i] < 0 ? null : values[valueIndex[i]], parameterTypes[i]);
+            }
+            try {
+                return constructor.newInstance(args);
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Unable to recreate a row of " + constructor.getDeclaringClass().getName(), e);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static @Nullable Object coerce(@Nullable Object value, Class<?> type) {
+            if (type == long.class || type == Long.class) {
+                return value instanceof Number ? ((Number) value).longValue() : type == long.class ? 0L : null;
+            } else if (type == int.class || type == Integer.class) {
+                return value instanceof Number ? ((Number) value).intValue() : type == int.class ? 0 : null;
+            } else if (type == short.class || type == Short.class) {
+                return value instanceof Number ? ((Number) value).shortValue() : type == short.class ? (short) 0 : null;
+            } else if (type == byte.class || type == Byte.class) {
+                return value instanceof Number ? ((Number) value).byteValue() : type == byte.class ? (byte) 0 : null;
+            } else if (type == double.class || type == Double.class) {
+                return value instanceof Number ? ((Number) value).doubleValue() : type == double.class ? 0.0 : null;
+            } else if (type == float.class || type == Float.class) {
+                return value instanceof Number ? ((Number) value).floatValue() : type == float.class ? 0f : null;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return value instanceof Boolean ? value : type == boolean.class ? false : null;
+            } else if (value != null && type.isEnum()) {
+                try {
+                    return Enum.valueOf((Class<? extends Enum>) type, value.toString());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            } else if (value != null && type == String.class) {
+                return value.toString();
+            }
+            return type.isInstance(value) ? value : null;
+        }
+    }
+}
@@ -15,37 +15,74 @@
  */
 package org.openrewrite.prethink;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.univocity.parsers.csv.CsvWriter;
 import com.univocity.parsers.csv.CsvWriterSettings;
 import lombok.EqualsAndHashCode;
 import lombok.Value;
+import lombok.With;
 import org.jspecify.annotations.Nullable;
 import org.openrewrite.*;
 import org.openrewrite.text.PlainText;
 
+import java.io.IOException;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
+import static org.openrewrite.PathUtils.separatorsToUnix;
 import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
 
 /**
  * Export DataTables to CSV files in .moderne/context/ along with a markdown description.
  * <p>
  * This recipe exports data tables from a single recipe context and generates:
- * - CSV files for each data table
+ * - CSV (or NDJSON) files for each data table, or with {@code partitionBy} a directory per
+ *   data table holding its rows grouped by partition and an index of the partitions
  * - A markdown file describing the context with data table schemas
  * <p>
  * The markdown file is named using the kebab-cased short name (e.g., test-coverage.md)
  * and includes the display name, descriptions, and a schema for each data table.
  */
 @Value
+@With
 @EqualsAndHashCode(callSuper = false)
 public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
 
+    private static final String PARTITION_INDEX = "index.md";
+
+    /**
+     * The stem of the one file a partitioned table's rows are written to, grouped by partition.
+     */
+    private static final String PARTITIONS = "partitions";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * The most frequent values listed per column in the schema, and how long each may be.
+     */
+    private static final int TOP_VALUES = 3;
+    private static final int MAX_STATISTIC_LENGTH = 40;
+
+    /**
+     * Fingerprinted along with the rows of each table, see {@link #skipUnchanged}. Increment it
+     * whenever the same rows would render differently, so that no table is left as it was.
+     */
+    private static final int FINGERPRINT_VERSION = 1;
+
     @Option(displayName = "Display name",
             description = "The display name for this context, shown in agent configurations.",
             example = "Test Coverage")
@@ -66,6 +103,167 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
             example = "org.openrewrite.prethink.table.TestMapping")
     List<String> dataTables;
 
+    @Option(displayName = "Context budget",
+            description = "A cap on the total size of the exported CSVs, in bytes (e.g. `2MB`) or in estimated " +
+                          "tokens (e.g. `200k tokens`). The budget is shared fairly across tables: a table smaller than " +
+                          "its share is kept whole, and larger tables keep their highest ranked rows, ranked by how often " +
+                          "the classes a row mentions are referenced across this context's tables. The markdown " +
+                          "description records which tables were truncated.",
+            required = false,
+            example = "2MB")
+    @Nullable
+    String budget;
+
+    @Option(displayName = "Row filters",
+            description = "Predicates rows must pass to be exported, each a column name, an operator and a pattern. " +
+                          "`=` and `!=` keep rows whose value does or does not match a glob, where `*` matches anything " +
+                          "but `/`, `**` matches anything and a leading `**/` matches any number of directories, " +
+                          "none included. `~` and `!~` keep rows whose value does or does not " +
+                          "contain a match of a regular expression. A filter only applies to the tables that have its column.",
+            required = false,
+            example = "Source path!=**/src/test/**")
+    @Nullable
+    List<String> rowFilters;
+
+    @Option(displayName = "Columns",
+            description = "The columns to export, by display name or field name. A table keeps the listed columns it " +
+                          "has, in their declared order, and a table that has none of them keeps all of its columns. " +
+                          "If not specified, every column is exported.",
+            required = false,
+            example = "Class name")
+    @Nullable
+    List<String> columns;
+
+    @Option(displayName = "Maximum value length",
+            description = "Truncate exported values longer than this many characters, marking the cut with `…`. " +
+                          "If not specified, values are exported in full.",
+            required = false,
+            example = "200")
+    @Nullable
+    Integer maxValueLength;
+
+    @Option(displayName = "Partition by",
+            description = "Group the rows of each table that has this column by partition, in one `partitions.csv` under " +
+                          "`.moderne/context/<table>/`, with an `index.md` listing the lines and row count of each partition. " +
+                          "A path column is partitioned by module, the directories before `src/`, and a class name " +
+                          "column by package. Append `:<depth>` to keep only that many leading directories or package " +
+                          "segments. If not specified, each table is exported as a single CSV.",
+            required = false,
+            example = "Class name:3")
+    @Nullable
+    String partitionBy;
+
+    @Option(displayName = "Format",
+            description = "The file format of the exported tables: `csv` (the default), or `ndjson` for one JSON " +
+                          "object per row, keyed by column field name, with numbers and booleans kept as such and " +
+                          "multi-line values escaped rather than quoted. Rows stream from the store into the file's " +
+                          "text without an object per row, but as with a CSV the text of each table is held in memory " +
+                          "in full, since it becomes the content of a source file.",
+            required = false,
+            valid = {"csv", "ndjson"},
+            example = "ndjson")
+    @Nullable
+    String format;
+
+    @Option(displayName = "SQL script",
+            description = "Also write every table of this context into one SQL script, `<context>.sql`, that creates " +
+                          "a typed table per data table, inserts its rows in batches in one transaction and indexes " +
+                          "its class name, entity id and source path columns. Load it with `sqlite3 context.db < <context>.sql` " +
+                          "to query and join the tables. The script holds the rows exported to the table files, after " +
+                          "the row filters, deduplication and sampling, with the selected columns in full. Rows are " +
+                          "inserted before any are pruned to fit the budget, and values are not truncated to the " +
+                          "maximum value length.",
+            required = false)
+    @Nullable
+    Boolean sqlScript;
+
+    @Option(displayName = "Search columns",
+            description = "Columns to build a full-text search index over, by display name or field name. Each table " +
+                          "that has any of them and isn't partitioned gets a `<table>.idx` next to its file, holding " +
+                          "the posting list and BM25 statistics of every word, which `org.openrewrite.prethink.SearchIndex` " +
+                          "answers top-k searches from without reading the table.",
+            required = false,
+            example = "Description")
+    @Nullable
+    List<String> searchColumns;
+
+    @Option(displayName = "Membership filter columns",
+            description = "Key columns, by display name or field name, to build a Bloom filter over. Each table that " +
+                          "has any of them gets a `<table>.bloom` next to its file, which " +
+                          "`org.openrewrite.prethink.MembershipFilter` answers whether the table might have a row " +
+                          "with a given key from, so that a key the table doesn't have never requires reading it.",
+            required = false,
+            example = "Class name")
+    @Nullable
+    List<String> membershipColumns;
+
+    @Option(displayName = "Context cards",
+            description = "Also join this context's tables on their class columns into one card per class, so that " +
+                          "everything the tables say about a class is in one place. Cards are grouped by package in " +
+                          "`<context>-cards/cards.md`, with an `index.md` from each class to its card. They hold " +
+                          "the rows passing the row filters, regardless of the budget.",
+            required = false)
+    @Nullable
+    Boolean contextCards;
+
+    @Option(displayName = "Package summary",
+            description = "Also roll this context's tables up the package hierarchy into `<context>-package-summary.csv`, " +
+                          "with a row per package and ancestor package counting its classes and the rows of each table " +
+                          "about them, and listing their most frequent responsibilities, patterns and error handling " +
+                          "strategies. Rows are attributed to the package of the first class they mention; tables " +
+                          "without a class column are not summarized.",
+            required = false)
+    @Nullable
+    Boolean packageSummary;
+
+    @Option(displayName = "Deduplicate",
+            description = "Drop rows identical to an earlier row of the same table, such as rows written by several " +
+                          "recipes that insert into the same table. Rows are compared on the exported columns, by a " +
+                          "128-bit fingerprint of their values. The number of rows dropped is noted in the markdown.",
+            required = false)
+    @Nullable
+    Boolean deduplicate;
+
+    @Option(displayName = "Sample",
+            description = "Keep at most this many rows of each table, sampled at random in one pass as they stream out " +
+                          "of the store, optionally stratified by a column so that each of its values is represented " +
+                          "as evenly as its rows allow. Tables without the column are sampled uniformly. The sample " +
+                          "is deterministic, so the same rows always yield the same sample.",
+            example = "500 by Class name",
+            required = false)
+    @Nullable
+    String sample;
+
+    @Option(displayName = "Change report",
+            description = "Also compare the freshly rendered tables with the ones the previous render left in " +
+                          "`.moderne/context/`, and summarize which rows were added, removed or changed in " +
+                          "`changes/<context>.md` for code review. Rows are matched on their table's natural key, " +
+                          "such as the entity id, the class name and signature, or the source path.",
+            required = false)
+    @Nullable
+    Boolean changeReport;
+
+    @Option(displayName = "Skip unchanged tables",
+            description = "Record a fingerprint of the rows of each table in `.moderne/context/manifest.json`, and leave a " +
+                          "table's files as the previous render wrote them when its rows and options are unchanged, " +
+                          "without formatting them again. Tables that are partitioned, or rendered for a budget, a SQL " +
+                          "script, context cards or a package summary, are always rendered in full. The rows of a table " +
+                          "that did change are read twice, once to fingerprint and once to format them, a cost accepted " +
+                          "so that a run in which few tables change formats none of the others.",
+            required = false)
+    @Nullable
+    Boolean skipUnchanged;
+
+    /**
+     * An export of the given data tables with every optional setting left unset, for composites
+     * to adjust with the {@code with} method of each option they set.
+     */
+    public static ExportContext of(String displayName, String shortDescription, String longDescription,
+                                   List<String> dataTables) {
+        return new ExportContext(displayName, shortDescription, longDescription, dataTables,
+                null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
     @Override
     public String getDisplayName() {
         return "Export context files";
@@ -76,12 +274,77 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
             "information for each data table.";
 
     @Override
-    public boolean causesAnotherCycle() {
-        return true;
+    public Validated<Object> validate() {
+        return super.validate()
+                .and(Validated.test("budget", "must be a size such as `2MB` or `200k tokens`", budget, b -> {
+                    try {
+                        ContextBudget.parse(b);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }))
+                .and(Validated.test("rowFilters", "must be predicates such as `Source path!=**/src/test/**`", rowFilters, f -> {
+                    try {
+                        RowFilter.compile(f);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }))
+                .and(Validated.test("maxValueLength", "must be positive", maxValueLength, n -> n == null || n > 0))
+                .and(Validated.test("partitionBy", "must be a column optionally followed by a depth, such as `Class name:3`",
+                        partitionBy, p -> {
+                            try {
+                                Partitioning.parse(p);
+                                return true;
+                            } catch (IllegalArgumentException e) {
+                                return false;
+                            }
+                        }))
+                .and(Validated.test("format", "must be `csv` or `ndjson`", format, f -> {
+                    try {
+                        ExportFormat.parse(f);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                }))
+                .and(Validated.test("sample", "must be a number of rows optionally followed by a column, such as `500 by Class name`",
+                        sample, s -> {
+                            try {
+                                Sampling.parse(s);
+                                return true;
+                            } catch (IllegalArgumentException e) {
+                                return false;
+                            }
+                        }));
+    }
+
+    @Override
+    public void buildRecipeList(RecipeList recipes) {
+        // Cycle 1 generates placeholders that need a second cycle to be filled. Filling them is
+        // itself a change, so this recipe doesn't cause another cycle after it.
+        recipes.recipe(new RequestFillCycle());
     }
 
     public static class Accumulator {
-        private final Set<Path> existingContextPaths = new HashSet<>();
+        // Concurrent so the scan phase may visit source files from several threads.
+        private final Set<Path> existingContextPaths = ConcurrentHashMap.newKeySet();
+
+        // The text of the table files as the previous render left them, by path relative to the
+        // context directory, for the change report. Only scanned from cycle 2 on, when the tables
+        // are rendered.
+        final Map<String, String> previousTables = new ConcurrentHashMap<>();
+
+        // With skipUnchanged, the entries of the manifest the previous render left, by file, and
+        // the SHA-256 of each table file as it is now, by path relative to the context directory.
+        final Map<String, ContextManifest.Entry> previousManifest = new ConcurrentHashMap<>();
+        final Map<String, String> existingHashes = new ConcurrentHashMap<>();
+
+        // The files left as the previous render wrote them, by path relative to the context
+        // directory, filled along with filesByRelativePath.
+        final Set<String> unchangedFiles = ConcurrentHashMap.newKeySet();
 
         public Set<Path> getExistingContextPaths() {
             return existingContextPaths;
@@ -90,11 +353,13 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
         // The fill-phase output, aggregated and rendered exactly once (in cycle 2+,
         // when the store is populated) and reused across every visited context file
         // instead of re-reading the data tables per file. Safe to cache because the
-        // producing recipes stop writing after cycle 1. A table that produced no
-        // rows is absent from the map so getVisitor() deletes its cycle-1
-        // placeholder. Published last via volatile so readers see a fully-built map.
+        // producing recipes stop writing after cycle 1. Keyed by path relative to
+        // the context directory, covering CSVs and partition indexes. A table that
+        // produced no rows is absent from the map so getVisitor() deletes its
+        // cycle-1 placeholder. Published last via volatile so readers see a
+        // fully-built map.
         @Nullable
-        volatile Map<String, String> csvByFilename;
+        volatile Map<String, String> filesByRelativePath;
         @Nullable
         volatile String markdown;
     }
@@ -108,15 +373,15 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
      * Aggregate and render this context's tables exactly once, caching the result
      * on the accumulator; later calls are no-ops. Only invoked from cycle 2+ (the
      * store is empty during cycle 1), so it always reads populated data tables.
-     * Tables that produced no rows are omitted from {@link Accumulator#csvByFilename}
+     * Tables that produced no rows are omitted from {@link Accumulator#filesByRelativePath}
      * so their cycle-1 placeholder is deleted in {@link #getVisitor}.
      */
     private void renderOnce(Accumulator acc, ExecutionContext ctx) {
-        if (acc.csvByFilename != null) {
+        if (acc.filesByRelativePath != null) {
             return;
         }
         synchronized (acc) {
-            if (acc.csvByFilename != null) {
+            if (acc.filesByRelativePath != null) {
                 return;
             }
             DataTableStore store = DataTableExecutionContextView.view(ctx).getDataTableStore();
@@ -130,8 +395,19 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                 }
             }
 
-            Map<String, String> rendered = new LinkedHashMap<>();
-            List<DataTableInfo> exportedTables = new ArrayList<>();
+            ContextBudget contextBudget = ContextBudget.parse(budget);
+            ContextBudget.Ranking ranking = contextBudget == null ? null : new ContextBudget.Ranking();
+            RowFilter rowFilter = RowFilter.compile(rowFilters);
+            Partitioning partitioning = Partitioning.parse(partitionBy);
+            Sampling sampling = Sampling.parse(sample);
+            ExportFormat exportFormat = exportFormat();
+            SqlScript script = Boolean.TRUE.equals(sqlScript) ? new SqlScript(displayName, getSqlFilename()) : null;
+            ContextCards cards = Boolean.TRUE.equals(contextCards) ? new ContextCards(displayName) : null;
+            PackageRollup rollup = Boolean.TRUE.equals(packageSummary) ? new PackageRollup() : null;
+
+            Map<String, RenderedTable> renderedCsvs = new LinkedHashMap<>();
+            Map<String, DataTable<?>> representatives = new HashMap<>();
+            Set<String> unchangedTables = new HashSet<>();
             // Iterate in the declared dataTables order for deterministic output.
             for (String tableFqn : dataTables) {
                 List<DataTable<?>> instances = instancesByFqn.get(tableFqn);
@@ -139,25 +415,318 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                     continue;
                 }
                 DataTable<?> representative = instances.get(0);
-                String csv = streamToCsv(store, representative, instances);
+                SqlScript.Table sqlTable = script == null ? null : script.table(
+                        SqlScript.tableName(tableToDirectory(tableFqn)),
+                        projectColumns(getColumnFields(representative.getType())));
+                // Skipping a table means leaving its files as they are, so only a table whose files
+                // depend on nothing but its own rows can be skipped.
+                String previousFingerprint = contextBudget == null && script == null && cards == null && rollup == null ?
+                        previousFingerprint(acc, tableFqn) : null;
+                RenderedTable csv;
+                if (previousFingerprint == null) {
+                    csv = streamTable(store, representative, instances, exportFormat, rowFilter, ranking,
+                            partitioning, sampling, sqlTable, cards, rollup, true);
+                } else {
+                    // Most runs change little, so first read the rows without formatting them, and
+                    // format them only when they no longer match the previous render.
+                    csv = streamTable(store, representative, instances, exportFormat, rowFilter, null,
+                            partitioning, sampling, null, null, null, false);
+                    if (csv != null && previousFingerprint.equals(csv.getFingerprint())) {
+                        unchangedTables.add(tableToFilename(tableFqn));
+                    } else if (csv != null) {
+                        csv = streamTable(store, representative, instances, exportFormat, rowFilter, null,
+                                partitioning, sampling, null, null, null, true);
+                    }
+                }
                 // No rows across any instance: omit so the cycle-1 placeholder is
                 // deleted (matching GenerateCalmArchitecture, which removes its
                 // placeholder when there is no data), and skip it in the markdown.
                 if (csv == null) {
                     continue;
                 }
-                rendered.put(tableToFilename(tableFqn), csv);
+                if (sqlTable != null) {
+                    sqlTable.end();
+                }
+                renderedCsvs.put(tableToFilename(tableFqn), csv);
+                representatives.put(tableToFilename(tableFqn), representative);
+            }
+
+            List<Truncation> truncations = emptyList();
+            if (contextBudget != null && ranking != null) {
+                truncations = fitToBudget(renderedCsvs, representatives, exportFormat, contextBudget, ranking);
+            }
+
+            Map<String, String> rendered = new LinkedHashMap<>();
+            Map<String, RenderedTable> publishedCsvs = new LinkedHashMap<>();
+            Set<String> unchangedFiles = new LinkedHashSet<>();
+            // Partition indexes and the SQL script, which are published as plain files rather than tables.
+            Map<String, String> otherFiles = new LinkedHashMap<>();
+            List<DataTableInfo> exportedTables = new ArrayList<>();
+            for (Map.Entry<String, RenderedTable> csv : renderedCsvs.entrySet()) {
+                DataTable<?> representative = representatives.get(csv.getKey());
+                String file = csv.getKey();
+                String partitionedBy = null;
+                String searchIndex = null;
+                String membershipFilter = null;
+                List<String> partitionKeys = csv.getValue().getPartitionKeys();
+                boolean unchanged = unchangedTables.contains(file);
+                if (unchanged) {
+                    unchangedFiles.add(file);
+                    if (csv.getValue().getSearch() != null) {
+                        searchIndex = tableToDirectory(csv.getValue().getTable()) + SearchIndex.EXTENSION;
+                        unchangedFiles.add(searchIndex);
+                    }
+                } else if (partitioning != null && partitionKeys != null) {
+                    String directory = tableToDirectory(csv.getValue().getTable());
+                    Map<String, PartitionSpan> partitions = new TreeMap<>();
+                    RenderedTable grouped = partition(csv.getValue(), exportFormat, partitionKeys, partitions);
+                    String partitionsFile = directory + "/" + PARTITIONS + exportFormat.getExtension();
+                    rendered.put(partitionsFile, grouped.getText());
+                    publishedCsvs.put(partitionsFile, grouped);
+                    file = directory + "/" + PARTITION_INDEX;
+                    partitionedBy = partitioning.toString();
+                    String index = generatePartitionIndex(representative, exportFormat, partitioning, partitions);
+                    rendered.put(file, index);
+                    otherFiles.put(file, index);
+                } else {
+                    rendered.put(file, csv.getValue().getText());
+                    publishedCsvs.put(file, csv.getValue());
+                    if (csv.getValue().getSearch() != null) {
+                        searchIndex = tableToDirectory(csv.getValue().getTable()) + SearchIndex.EXTENSION;
+                        String index = csv.getValue().getSearch().write(representative.getDisplayName());
+                        rendered.put(searchIndex, index);
+                        otherFiles.put(searchIndex, index);
+                    }
+                }
+                MembershipFilter.Builder membership = csv.getValue().getMembership();
+                if (membership != null && unchanged) {
+                    membershipFilter = tableToDirectory(csv.getValue().getTable()) + MembershipFilter.EXTENSION;
+                    unchangedFiles.add(membershipFilter);
+                } else if (membership != null) {
+                    // Rows pruned to fit the budget stay in the filter, which is only ever a false positive.
+                    membershipFilter = tableToDirectory(csv.getValue().getTable()) + MembershipFilter.EXTENSION;
+                    String filter = membership.write(representative.getDisplayName() + " keys: " +
+                                                     String.join(", ", membership.getKeyColumns()));
+                    rendered.put(membershipFilter, filter);
+                    otherFiles.put(membershipFilter, filter);
+                }
                 exportedTables.add(new DataTableInfo(
                         representative.getDisplayName(),
                         representative.getDescription(),
-                        tableToFilename(tableFqn),
-                        getColumnInfo(representative)
+                        file,
+                        csv.getValue().getRows(),
+                        csv.getValue().getColumnStats().length == 0 ? 0 : csv.getValue().getColumnStats()[0].getRows(),
+                        getColumnInfo(projectColumns(getColumnFields(representative.getType())), exportFormat,
+                                csv.getValue().getColumnStats()),
+                        rowFilter == null ? emptyList() : rowFilter.bind(getColumnFields(representative.getType())).describe(),
+                        partitionedBy,
+                        searchIndex,
+                        membership == null ? null : new MembershipInfo(membershipFilter, membership.getKeyColumns()),
+                        script == null ? null : SqlScript.tableName(tableToDirectory(csv.getValue().getTable())),
+                        csv.getValue().getDuplicates(),
+                        csv.getValue().getSample()
                 ));
             }
-            acc.markdown = exportedTables.isEmpty() ? null : generateMarkdown(exportedTables);
+            if (rollup != null && !rollup.isEmpty()) {
+                String summary = rollup.render();
+                rendered.put(getPackageSummaryFilename(), summary);
+                otherFiles.put(getPackageSummaryFilename(), summary);
+            }
+            if (cards != null && !cards.isEmpty()) {
+                for (Map.Entry<String, String> card : cards.render().entrySet()) {
+                    String cardFile = getCardsDirectory() + "/" + card.getKey();
+                    rendered.put(cardFile, card.getValue());
+                    otherFiles.put(cardFile, card.getValue());
+                }
+            }
+            if (Boolean.TRUE.equals(changeReport)) {
+                // An unchanged file is compared as the previous render left it.
+                Map<String, String> renderedTables = new LinkedHashMap<>(rendered);
+                for (String file : unchangedFiles) {
+                    String previous = acc.previousTables.get(file);
+                    if (previous != null) {
+                        renderedTables.put(file, previous);
+                    }
+                }
+                String changes = compare(acc.previousTables, renderedTables, instancesByFqn);
+                rendered.put(getChangesFilename(), changes);
+                otherFiles.put(getChangesFilename(), changes);
+            }
+            if (script != null && !script.isEmpty()) {
+                String sql = script.finish();
+                rendered.put(getSqlFilename(), sql);
+                otherFiles.put(getSqlFilename(), sql);
+            }
+            acc.markdown = exportedTables.isEmpty() ? null :
+                    generateMarkdown(exportedTables, truncations, contextBudget, cards != null && !cards.isEmpty(),
+                            rollup != null && !rollup.isEmpty());
+            List<ContextManifest.Entry> unchangedEntries = new ArrayList<>(unchangedFiles.size());
+            for (String file : unchangedFiles) {
+                unchangedEntries.add(acc.previousManifest.get(CONTEXT_DIR.resolve(file).toString()));
+            }
+            publish(publishedCsvs, otherFiles, unchangedEntries, acc.markdown, ctx);
+            acc.unchangedFiles.addAll(unchangedFiles);
             // Publish the map last so readers see it (and markdown) fully built — volatile happens-before.
-            acc.csvByFilename = rendered;
+            acc.filesByRelativePath = rendered;
+        }
+    }
+
+    /**
+     * Prune the rendered tables in place to fit the budget, returning what was truncated. Tables
+     * left without any data rows are removed, like tables that never produced any.
+     */
+    private List<Truncation> fitToBudget(Map<String, RenderedTable> renderedCsvs, Map<String, DataTable<?>> representatives,
+                                         ExportFormat exportFormat, ContextBudget contextBudget, ContextBudget.Ranking ranking) {
+        List<String> filenames = new ArrayList<>(renderedCsvs.keySet());
+        long[] sizes = new long[filenames.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = contextBudget.cost(renderedCsvs.get(filenames.get(i)).getText());
         }
+        long[] allowances = contextBudget.allocate(sizes);
+
+        List<Truncation> truncations = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            if (allowances[i] >= sizes[i]) {
+                continue;
+            }
+            String filename = filenames.get(i);
+            RenderedTable csv = renderedCsvs.get(filename);
+            ContextBudget.Pruned pruned = contextBudget.prune(csv.getText(), exportFormat.recordEnds(csv.getText()),
+                    csv.getClassIds(), csv.getClassColumns(), ranking, allowances[i]);
+            truncations.add(new Truncation(representatives.get(filename).getDisplayName(), pruned.getRows(), csv.getRows()));
+            if (pruned.getRows() == 0) {
+                renderedCsvs.remove(filename);
+            } else {
+                int[] partitionOf = new int[pruned.getKeptRows().length];
+                if (csv.getPartitionKeys() != null) {
+                    for (int row = 0; row < partitionOf.length; row++) {
+                        partitionOf[row] = csv.getPartitionOf()[pruned.getKeptRows()[row]];
+                    }
+                }
+                if (csv.getSearch() != null) {
+                    csv.getSearch().retain(pruned.getKeptRows());
+                }
+                renderedCsvs.put(filename, new RenderedTable(csv.getTable(), pruned.getText(), pruned.getRows(),
+                        csv.getClassIds(), csv.getClassColumns(), partitionOf, csv.getPartitionKeys(), csv.getSearch(),
+                        csv.getMembership(), csv.getColumnStats(), csv.getDuplicates(), csv.getSample(),
+                        csv.getFingerprint()));
+            }
+        }
+        return truncations;
+    }
+
+    /**
+     * Regroup the rows of a rendered table by partition, in partition order, under its one header,
+     * recording the lines of the regrouped text each partition spans in {@code spans}.
+     */
+    private static RenderedTable partition(RenderedTable csv, ExportFormat exportFormat, List<String> keys,
+                                           Map<String, PartitionSpan> spans) {
+        String text = csv.getText();
+        int[] ends = exportFormat.recordEnds(text);
+        int[] partitionOf = csv.getPartitionOf();
+        int rows = Math.min(partitionOf.length, ends.length - 1);
+
+        // A counting sort of the rows by partition, keeping the rendered order within each.
+        Integer[] byKey = new Integer[keys.size()];
+        for (int partition = 0; partition < byKey.length; partition++) {
+            byKey[partition] = partition;
+        }
+        Arrays.sort(byKey, Comparator.comparing(keys::get));
+        int[] counts = new int[keys.size()];
+        for (int row = 0; row < rows; row++) {
+            counts[partitionOf[row]]++;
+        }
+        int[] offsets = new int[keys.size()];
+        int offset = 0;
+        for (int partition : byKey) {
+            offsets[partition] = offset;
+            offset += counts[partition];
+        }
+        int[] order = new int[rows];
+        int[] next = offsets.clone();
+        for (int row = 0; row < rows; row++) {
+            order[next[partitionOf[row]]++] = row;
+        }
+
+        StringBuilder grouped = new StringBuilder(text.length()).append(text, 0, ends[0]);
+        int line = lines(text, 0, ends[0]);
+        for (int partition : byKey) {
+            if (counts[partition] == 0) {
+                continue;
+            }
+            int firstLine = line + 1;
+            for (int i = offsets[partition]; i < next[partition]; i++) {
+                int row = order[i];
+                grouped.append(text, ends[row], ends[row + 1]);
+                line += lines(text, ends[row], ends[row + 1]);
+            }
+            spans.put(keys.get(partition), new PartitionSpan(counts[partition], firstLine, line));
+        }
+        return new RenderedTable(csv.getTable(), grouped.toString(), rows, new int[0], 0, new int[0], null, null,
+                null, csv.getColumnStats(), csv.getDuplicates(), csv.getSample(), csv.getFingerprint());
+    }
+
+    private static int lines(String text, int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private String generatePartitionIndex(DataTable<?> representative, ExportFormat exportFormat,
+                                          Partitioning partitioning, Map<String, PartitionSpan> partitions) {
+        String file = PARTITIONS + exportFormat.getExtension();
+        StringBuilder sb = new StringBuilder();
+        sb.append("# ").append(representative.getDisplayName()).append("\n\n");
+        sb.append(representative.getDescription()).append("\n\n");
+        sb.append("Partitioned by `").append(partitioning).append("`. The rows of each partition are on consecutive ")
+                .append("lines of [`").append(file).append("`](").append(file).append("), so read only the lines ")
+                .append("of the partitions you need.");
+        if (partitions.containsKey(Partitioning.OTHER)) {
+            sb.append(" Rows beyond the first ").append(Partitioning.MAX_PARTITIONS)
+                    .append(" partitions share the `").append(Partitioning.OTHER).append("` partition.");
+        }
+        sb.append("\n\n");
+        sb.append("| Partition | Lines | Rows |\n");
+        sb.append("|-----------|-------|------|\n");
+        for (Map.Entry<String, PartitionSpan> partition : partitions.entrySet()) {
+            PartitionSpan span = partition.getValue();
+            sb.append("| ").append(partition.getKey()).append(" | ").append(span.getFirstLine());
+            if (span.getLastLine() > span.getFirstLine()) {
+                sb.append("-").append(span.getLastLine());
+            }
+            sb.append(" | ").append(span.getRows()).append(" |\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Publish what was rendered so sibling recipes can use it in this same cycle, without
+     * waiting for the filled files to show up in a later cycle's scan.
+     */
+    private void publish(Map<String, RenderedTable> renderedCsvs, Map<String, String> otherFiles,
+                         List<ContextManifest.Entry> unchangedFiles, @Nullable String markdown, ExecutionContext ctx) {
+        RenderedContext renderedContext = RenderedContext.publishTo(ctx);
+        String contextFile = CONTEXT_DIR.resolve(getContextFilename()).toString();
+        for (Map.Entry<String, RenderedTable> csv : renderedCsvs.entrySet()) {
+            renderedContext.table(
+                    CONTEXT_DIR.resolve(csv.getKey()).toString(),
+                    contextFile,
+                    csv.getValue().getTable(),
+                    csv.getValue().getRows(),
+                    csv.getValue().getText(),
+                    csv.getValue().getFingerprint());
+        }
+        for (Map.Entry<String, String> file : otherFiles.entrySet()) {
+            renderedContext.file(CONTEXT_DIR.resolve(file.getKey()).toString(), file.getValue());
+        }
+        for (ContextManifest.Entry file : unchangedFiles) {
+            renderedContext.unchanged(file);
+        }
+        renderedContext.markdown(new UpdateAgentConfig.ContextEntry(displayName, shortDescription, contextFile), markdown);
     }
 
     /**
@@ -165,42 +734,266 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
      * memory. Returns {@code null} when no instance produced any row, signalling
      * the caller to drop the table (so empty tables don't leave a headers-only
      * CSV behind).
+     * <p>
+     * Rows failing the {@code rowFilter} are skipped as they stream out of the store, before any
+     * of their columns are converted to strings, and only the projected columns of the rest are
+     * converted. With a {@code ranking}, the classes each row mentions are counted towards it as
+     * well, so that the rows can later be pruned to fit the budget. With a {@code partitioning},
+     * the partition of each row is recorded, so the rendered text can be split by partition
+     * without a second pass over the store. With a {@code sqlTable}, each row is inserted into it
+     * in the same pass, and with {@link #searchColumns} and {@link #membershipColumns} the rows are
+     * indexed for search and membership. With {@code cards}, each row is joined to the cards of the
+     * classes it mentions, and with a {@code rollup} it is tallied towards the package summary.
+     * The statistics of each projected column are gathered in the same pass, in constant memory.
+     * With {@link #deduplicate}, rows identical to an earlier one are skipped before anything else
+     * sees them. With a {@code sampling}, the rows are offered to a reservoir instead, and only
+     * those it holds once every row was offered are rendered, in their original order.
+     * <p>
+     * With {@link #skipUnchanged}, the rows are fingerprinted as they are read, before any of them
+     * is formatted. Unless {@code format} is set, they are then only counted and described by their
+     * column statistics, so that a table whose fingerprint matches the previous render costs no
+     * more than reading it.
      */
     @SuppressWarnings("unchecked")
-    private @Nullable String streamToCsv(DataTableStore store, DataTable<?> representative, List<DataTable<?>> instances) {
-        List<Field> columnFields = getColumnFields(representative.getType());
-        String[] headers = columnFields.stream()
-                .map(f -> f.getAnnotation(Column.class).displayName())
-                .toArray(String[]::new);
+    private @Nullable RenderedTable streamTable(DataTableStore store, DataTable<?> representative, List<DataTable<?>> instances,
+                                                ExportFormat exportFormat, @Nullable RowFilter rowFilter,
+                                                ContextBudget.@Nullable Ranking ranking, @Nullable Partitioning partitioning,
+                                                @Nullable Sampling sampling,
+                                                SqlScript.@Nullable Table sqlTable, @Nullable ContextCards cards,
+                                                @Nullable PackageRollup rollup, boolean format) {
+        List<Field> allColumnFields = getColumnFields(representative.getType());
+        List<Field> columnFields = projectColumns(allColumnFields);
+        String[] headers = new String[columnFields.size()];
+        SerializedString[] keys = new SerializedString[columnFields.size()];
+        for (int i = 0; i < columnFields.size(); i++) {
+            Field field = columnFields.get(i);
+            field.setAccessible(true);
+            headers[i] = field.getAnnotation(Column.class).displayName();
+            keys[i] = new SerializedString(field.getName());
+        }
+        int[] classColumns = ranking == null ? new int[0] : classColumns(headers);
+        int[][] classIds = {new int[classColumns.length * 64]};
+        // Filters may test columns that aren't projected.
+        RowFilter.Bound filter = rowFilter == null ? null : rowFilter.bind(allColumnFields);
+        Partitioning.Router router = partitioning == null ? null : partitioning.router(allColumnFields);
+        // Partitioned rows are regrouped after they are rendered, so only a table exported whole is indexed.
+        SearchIndex.Builder search = router == null ? SearchIndex.Builder.forColumns(searchColumns, allColumnFields) : null;
+        MembershipFilter.Builder membership = MembershipFilter.Builder.forColumns(membershipColumns, allColumnFields);
+        PackageRollup.Table rollupTable = rollup == null ? null : rollup.table(representative.getDisplayName(), allColumnFields);
+        int[] cardColumns = cards == null ? new int[0] : classColumns(headers);
+        ContextCards.Table cardTable = cards == null || cardColumns.length == 0 ? null :
+                cards.table(representative.getDisplayName(), headers, cardColumns);
 
         StringWriter stringWriter = new StringWriter();
-        CsvWriter writer = new CsvWriter(stringWriter, new CsvWriterSettings());
-        writer.writeHeaders(headers);
+        CsvWriter csvWriter = null;
+        JsonGenerator jsonWriter = null;
+        if (format && exportFormat == ExportFormat.NDJSON) {
+            jsonWriter = ndjsonGenerator(stringWriter);
+        } else if (format) {
+            csvWriter = new CsvWriter(stringWriter, new CsvWriterSettings());
+            csvWriter.writeHeaders(headers);
+        }
+        CsvWriter csv = csvWriter;
+        JsonGenerator json = jsonWriter;
 
-        boolean[] wroteRow = {false};
+        long[] rowCount = {0};
+        long[] duplicates = {0};
+        // Instances of a table are deduplicated together, as their rows end up in the same file.
+        RowFingerprints fingerprints = Boolean.TRUE.equals(deduplicate) ? new RowFingerprints() : null;
+        Object[] rawValues = new Object[columnFields.size()];
         String[] values = new String[columnFields.size()];
+        ColumnStats[] stats = new ColumnStats[columnFields.size()];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new ColumnStats();
+        }
+        Sampling.Reservoir reservoir = sampling == null ? null : sampling.reservoir(allColumnFields);
+        TableFingerprint fingerprint = Boolean.TRUE.equals(skipUnchanged) ?
+                new TableFingerprint(fingerprintConfiguration(columnFields, exportFormat)) : null;
+        // Renders a row whose projected values are in rawValues.
+        Consumer<Object> emit = row -> {
+            rowCount[0]++;
+            if (!format) {
+                return;
+            }
+            if (csv != null || cardTable != null) {
+                for (int i = 0; i < rawValues.length; i++) {
+                    values[i] = rawValues[i] == null ? "" : truncate(rawValues[i].toString());
+                }
+            }
+            if (json != null) {
+                writeJson(json, keys, rawValues);
+            } else if (csv != null) {
+                csv.writeRow((Object[]) values);
+            }
+            if (cardTable != null) {
+                cardTable.add(rawValues, values);
+            }
+            if (rollupTable != null) {
+                rollupTable.add(row);
+            }
+            if (sqlTable != null) {
+                sqlTable.insert(rawValues);
+            }
+            if (search != null) {
+                search.add(row);
+            }
+            if (membership != null) {
+                membership.add(row);
+            }
+            if (router != null) {
+                router.route(row);
+            }
+            if (ranking != null && classColumns.length > 0) {
+                int offset = (int) (rowCount[0] - 1) * classColumns.length;
+                if (offset + classColumns.length > classIds[0].length) {
+                    classIds[0] = Arrays.copyOf(classIds[0], classIds[0].length * 2);
+                }
+                for (int c = 0; c < classColumns.length; c++) {
+                    Object className = rawValues[classColumns[c]];
+                    classIds[0][offset + c] = ranking.reference(className == null ? "" : className.toString());
+                }
+            }
+        };
         for (DataTable<?> instance : instances) {
             Class<? extends DataTable<Object>> dtClass = (Class<? extends DataTable<Object>>) instance.getClass();
             try (Stream<Object> rows = store.getRows(dtClass, instance.getGroup())) {
                 rows.forEach(row -> {
-                    wroteRow[0] = true;
-                    for (int i = 0; i < columnFields.size(); i++) {
-                        Field field = columnFields.get(i);
-                        try {
-                            field.setAccessible(true);
-                            Object value = field.get(row);
-                            values[i] = value == null ? "" : value.toString();
-                        } catch (IllegalAccessException e) {
-                            values[i] = "";
-                        }
+                    if (filter != null && !filter.test(row)) {
+                        return;
+                    }
+                    readValues(columnFields, row, rawValues);
+                    if (fingerprint != null) {
+                        fingerprint.add(rawValues);
+                    }
+                    if (fingerprints != null && !fingerprints.add(rawValues)) {
+                        duplicates[0]++;
+                        return;
+                    }
+                    for (int i = 0; i < rawValues.length; i++) {
+                        stats[i].add(rawValues[i]);
+                    }
+                    if (reservoir != null) {
+                        reservoir.offer(row);
+                    } else {
+                        emit.accept(row);
                     }
-                    writer.writeRow((Object[]) values);
                 });
             }
         }
+        if (reservoir != null) {
+            // Only the sampled rows are rendered, once every row has had its chance.
+            for (Object row : reservoir.rows()) {
+                readValues(columnFields, row, rawValues);
+                emit.accept(row);
+            }
+        }
+
+        if (json != null) {
+            try {
+                json.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Objects are separated by newlines; end the last one too, like a CSV row.
+            stringWriter.write('\n');
+        } else if (csv != null) {
+            csv.close();
+        }
+        return rowCount[0] > 0 ?
+                new RenderedTable(representative.getClass().getName(), stringWriter.toString(), rowCount[0],
+                        Arrays.copyOf(classIds[0], (int) rowCount[0] * classColumns.length), classColumns.length,
+                        router == null ? new int[0] : router.getPartitionOf(),
+                        router == null ? null : router.getKeys(),
+                        search, membership, stats, duplicates[0],
+                        reservoir == null ? null : new SampleInfo(reservoir.getOffered(), rowCount[0], reservoir.getStratumColumn()),
+                        fingerprint == null ? null : fingerprint.toString()) :
+                null;
+    }
+
+    /**
+     * A generator that writes each root-level object on a line of its own. One generator encodes
+     * every row of a table, writing straight to its output without building a tree per row.
+     */
+    private static JsonGenerator ndjsonGenerator(Writer writer) {
+        try {
+            return JSON_FACTORY.createGenerator(writer).setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJson(JsonGenerator json, SerializedString[] keys, Object[] values) {
+        try {
+            json.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                json.writeFieldName(keys[i]);
+                Object value = values[i];
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Integer || value instanceof Long ||
+                           value instanceof Short || value instanceof Byte) {
+                    json.writeNumber(((Number) value).longValue());
+                } else if ((value instanceof Double || value instanceof Float) &&
+                           Double.isFinite(((Number) value).doubleValue())) {
+                    json.writeNumber(((Number) value).doubleValue());
+                } else if (value instanceof BigDecimal) {
+                    json.writeNumber((BigDecimal) value);
+                } else if (value instanceof BigInteger) {
+                    json.writeNumber((BigInteger) value);
+                } else if (value instanceof Boolean) {
+                    json.writeBoolean((Boolean) value);
+                } else {
+                    json.writeString(truncate(value.toString()));
+                }
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The columns to export among a table's {@code @Column} fields.
+     */
+    private List<Field> projectColumns(List<Field> columnFields) {
+        if (columns == null || columns.isEmpty()) {
+            return columnFields;
+        }
+        List<Field> projected = new ArrayList<>(columnFields.size());
+        for (Field field : columnFields) {
+            String displayName = field.getAnnotation(Column.class).displayName();
+            for (String column : columns) {
+                if (column.equals(field.getName()) || column.equalsIgnoreCase(displayName)) {
+                    projected.add(field);
+                    break;
+                }
+            }
+        }
+        return projected.isEmpty() ? columnFields : projected;
+    }
+
+    /**
+     * Cut a value to {@link #maxValueLength} characters, the last of them an ellipsis, without
+     * splitting a surrogate pair.
+     */
+    private String truncate(String value) {
+        if (maxValueLength == null || value.length() <= maxValueLength) {
+            return value;
+        }
+        int end = maxValueLength - 1;
+        if (end > 0 && Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end) + "…";
+    }
 
-        writer.close();
-        return wroteRow[0] ? stringWriter.toString() : null;
+    /**
+     * The indices of the columns that name classes, whose values rank rows for pruning.
+     */
+    private static int[] classColumns(String[] headers) {
+        return IntStream.range(0, headers.length)
+                .filter(i -> headers[i].toLowerCase(Locale.ROOT).contains("class"))
+                .toArray();
     }
 
     @Override
@@ -214,6 +1007,27 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                     // Track existing context files so we can update them
                     if (path.startsWith(CONTEXT_DIR)) {
                         acc.getExistingContextPaths().add(path);
+                        if (Boolean.TRUE.equals(changeReport) && ctx.getCycle() != 1 && sf instanceof PlainText) {
+                            String relativePath = separatorsToUnix(CONTEXT_DIR.relativize(path).toString());
+                            for (String tableFqn : dataTables) {
+                                if (tableFileFormat(relativePath, tableFqn) != null) {
+                                    acc.previousTables.put(relativePath, ((PlainText) sf).getText());
+                                }
+                            }
+                        }
+                        if (Boolean.TRUE.equals(skipUnchanged) && ctx.getCycle() != 1 && sf instanceof PlainText) {
+                            String text = ((PlainText) sf).getText();
+                            if (path.equals(ContextManifest.MANIFEST_PATH)) {
+                                for (ContextManifest.Entry entry : ContextManifest.parse(text)) {
+                                    acc.previousManifest.put(entry.getFile(), entry);
+                                }
+                            } else {
+                                String relativePath = separatorsToUnix(CONTEXT_DIR.relativize(path).toString());
+                                if (ownsFile(relativePath)) {
+                                    acc.existingHashes.put(relativePath, ContextManifest.sha256(text));
+                                }
+                            }
+                        }
                     }
                 }
                 return tree;
@@ -239,7 +1053,14 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
         // populated. Generating the placeholder in cycle 1 also drives the second
         // cycle on its own (a generated file is a change), so the export no longer
         // depends on a sibling recipe making a change to trigger cycle 2.
-        if (ctx.getCycle() != 1 || dataTables.isEmpty()) {
+        if (dataTables.isEmpty()) {
+            return emptyList();
+        }
+        if (ctx.getCycle() != 1) {
+            // Render now rather than lazily from the visitor: this generate phase runs before
+            // any recipe edits, so sibling recipes such as UpdateAgentConfig can pick up the
+            // published result in this same cycle (see RenderedContext).
+            renderOnce(acc, ctx);
             return emptyList();
         }
 
@@ -256,14 +1077,39 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                 continue;
             }
             anyTableResolvable = true;
-            Path filePath = CONTEXT_DIR.resolve(tableToFilename(tableFqn));
-            if (acc.getExistingContextPaths().contains(filePath)) {
-                continue;
+            // Which partitions a table has depends on its rows, so a partitioned table's rows all go
+            // to one file grouped by partition, known up front like the file of a whole table.
+            boolean partitioned = isPartitioned(tableFqn);
+            Path filePath = CONTEXT_DIR.resolve(partitioned ?
+                    tableToDirectory(tableFqn) + "/" + PARTITIONS + exportFormat().getExtension() :
+                    tableToFilename(tableFqn));
+            if (!acc.getExistingContextPaths().contains(filePath)) {
+                contextFiles.add(PlainText.builder()
+                        .text(exportFormat() == ExportFormat.CSV ? headers : "")
+                        .sourcePath(filePath)
+                        .build());
+            }
+            Path partitionIndexPath = CONTEXT_DIR.resolve(tableToDirectory(tableFqn) + "/" + PARTITION_INDEX);
+            if (partitioned && !acc.getExistingContextPaths().contains(partitionIndexPath)) {
+                contextFiles.add(PlainText.builder()
+                        .text("# " + tableFqn.substring(tableFqn.lastIndexOf('.') + 1) + "\n")
+                        .sourcePath(partitionIndexPath)
+                        .build());
+            }
+            Path searchIndexPath = CONTEXT_DIR.resolve(tableToDirectory(tableFqn) + SearchIndex.EXTENSION);
+            if (!partitioned && isSearchable(tableFqn) && !acc.getExistingContextPaths().contains(searchIndexPath)) {
+                contextFiles.add(PlainText.builder()
+                        .text("# " + tableFqn.substring(tableFqn.lastIndexOf('.') + 1) + "\n")
+                        .sourcePath(searchIndexPath)
+                        .build());
+            }
+            Path membershipPath = CONTEXT_DIR.resolve(tableToDirectory(tableFqn) + MembershipFilter.EXTENSION);
+            if (hasMembershipColumn(tableFqn) && !acc.getExistingContextPaths().contains(membershipPath)) {
+                contextFiles.add(PlainText.builder()
+                        .text("# " + tableFqn.substring(tableFqn.lastIndexOf('.') + 1) + "\n")
+                        .sourcePath(membershipPath)
+                        .build());
             }
-            contextFiles.add(PlainText.builder()
-                    .text(headers)
-                    .sourcePath(filePath)
-                    .build());
         }
 
         // Placeholder markdown description file (only when at least one table
@@ -276,6 +1122,53 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                     .build());
         }
 
+        // Placeholder package summary, filled once every table is rolled up.
+        Path summaryPath = CONTEXT_DIR.resolve(getPackageSummaryFilename());
+        if (anyTableResolvable && Boolean.TRUE.equals(packageSummary) && !acc.getExistingContextPaths().contains(summaryPath)) {
+            contextFiles.add(PlainText.builder()
+                    .text("Package,Depth,Classes\n")
+                    .sourcePath(summaryPath)
+                    .build());
+        }
+
+        // Placeholder cards and their index. Which packages the cards cover is only known once the
+        // rows are read, so the cards of every package go to one file known up front.
+        if (anyTableResolvable && Boolean.TRUE.equals(contextCards)) {
+            for (String cardFile : Arrays.asList(ContextCards.INDEX, ContextCards.CARDS)) {
+                Path cardPath = CONTEXT_DIR.resolve(getCardsDirectory() + "/" + cardFile);
+                if (!acc.getExistingContextPaths().contains(cardPath)) {
+                    contextFiles.add(PlainText.builder()
+                            .text("# " + displayName + " Cards\n")
+                            .sourcePath(cardPath)
+                            .build());
+                }
+            }
+        }
+
+        // Placeholder change report, filled once the tables are rendered and compared.
+        Path changesPath = CONTEXT_DIR.resolve(getChangesFilename());
+        if (anyTableResolvable && Boolean.TRUE.equals(changeReport) && !acc.getExistingContextPaths().contains(changesPath)) {
+            contextFiles.add(PlainText.builder()
+                    .text("# " + displayName + " Changes\n")
+                    .sourcePath(changesPath)
+                    .build());
+        }
+
+        // Placeholder SQL script, filled with every table that produced rows.
+        Path sqlPath = CONTEXT_DIR.resolve(getSqlFilename());
+        if (anyTableResolvable && Boolean.TRUE.equals(sqlScript) && !acc.getExistingContextPaths().contains(sqlPath)) {
+            contextFiles.add(PlainText.builder()
+                    .text("-- " + displayName + "\n")
+                    .sourcePath(sqlPath)
+                    .build());
+        }
+
+        // Placeholder manifest, shared with the other recipes that render context files.
+        if (anyTableResolvable && !acc.getExistingContextPaths().contains(ContextManifest.MANIFEST_PATH) &&
+            ContextManifest.claimPlaceholder(ctx)) {
+            contextFiles.add(ContextManifest.placeholder());
+        }
+
         return contextFiles;
     }
 
@@ -294,16 +1187,23 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                     PlainText pt = (PlainText) tree;
                     Path path = pt.getSourcePath();
 
-                    if (path.startsWith(CONTEXT_DIR)) {
-                        String filename = path.getFileName().toString();
+                    if (path.equals(ContextManifest.MANIFEST_PATH)) {
+                        // Everything rendered this cycle was published during the generate phase.
+                        return ContextManifest.fill(pt, ctx);
+                    } else if (path.startsWith(CONTEXT_DIR)) {
+                        String relativePath = separatorsToUnix(CONTEXT_DIR.relativize(path).toString());
 
-                        // Fill (or remove) CSV files for tables this recipe owns.
-                        // The content is aggregated + rendered exactly once and
-                        // reused, rather than re-read from the store per file.
-                        if (filename.endsWith(".csv") && ownsCsvFile(filename)) {
+                        // Fill (or remove) CSV files, partition indexes and the files rendered
+                        // from all tables together that this recipe owns. The content is
+                        // aggregated + rendered exactly once and reused, rather than re-read
+                        // from the store per file.
+                        if (ownsFile(relativePath) || ownsContextFile(relativePath)) {
                             renderOnce(acc, ctx);
-                            Map<String, String> csvByFilename = acc.csvByFilename;
-                            String newContent = csvByFilename == null ? null : csvByFilename.get(filename);
+                            if (acc.unchangedFiles.contains(relativePath)) {
+                                return tree;
+                            }
+                            Map<String, String> files = acc.filesByRelativePath;
+                            String newContent = files == null ? null : files.get(relativePath);
                             // Delete the cycle-1 placeholder when the table produced
                             // no rows, so empty tables don't leave behind a
                             // headers-only CSV (matching GenerateCalmArchitecture,
@@ -314,7 +1214,7 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
                             if (!newContent.equals(pt.getText())) {
                                 return pt.withText(newContent);
                             }
-                        } else if (filename.equals(toKebabCase(displayName) + ".md")) {
+                        } else if (relativePath.equals(getContextFilename())) {
                             // Fill (or remove) the markdown description file. The
                             // markdown documents only the tables that produced rows;
                             // it is null when none did, so the placeholder is deleted.
@@ -335,29 +1235,187 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
     }
 
     /**
-     * Whether the given CSV filename corresponds to one of the data tables this
-     * ExportContext instance is configured to export. Without this guard, every
-     * ExportContext instance in a composite would try to fill every other
-     * instance's CSVs (they all share the same getVisitor shape), producing
-     * empty/incorrect content.
+     * Whether the given file, relative to the context directory, is the CSV, search
+     * index, membership filter, or a partition CSV or index of one of the data tables this ExportContext instance
+     * is configured to export. Without this guard, every ExportContext instance in
+     * a composite would try to fill every other instance's CSVs (they all share
+     * the same getVisitor shape), producing empty/incorrect content. Partition
+     * files are owned whether or not partitioning is configured, so that turning
+     * it off removes them.
      */
-    private boolean ownsCsvFile(String filename) {
-        return fqnForCsvFile(filename) != null;
+    private boolean ownsFile(String relativePath) {
+        for (String tableFqn : dataTables) {
+            String directory = tableToDirectory(tableFqn);
+            if (relativePath.equals(directory + SearchIndex.EXTENSION) ||
+                relativePath.equals(directory + MembershipFilter.EXTENSION)) {
+                return true;
+            }
+            String file = relativePath;
+            if (relativePath.startsWith(directory + "/") && relativePath.indexOf('/', directory.length() + 1) < 0) {
+                if (relativePath.endsWith("/" + PARTITION_INDEX)) {
+                    return true;
+                }
+                file = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+                directory = file.substring(0, Math.max(file.lastIndexOf('.'), 0));
+            }
+            // Files of every format are owned, so that switching formats removes the old ones.
+            for (ExportFormat exportFormat : ExportFormat.values()) {
+                if (file.equals(directory + exportFormat.getExtension())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * The configured data table FQN that produces the given CSV filename, or
-     * {@code null} if this ExportContext instance does not own that file.
+     * Whether the given file, relative to the context directory, is one of the files this context
+     * renders from all of its tables together. They are owned whether or not they are configured,
+     * so that turning them off removes them.
      */
-    private @Nullable String fqnForCsvFile(String filename) {
-        for (String tableFqn : dataTables) {
-            if (tableToFilename(tableFqn).equals(filename)) {
-                return tableFqn;
+    private boolean ownsContextFile(String relativePath) {
+        return relativePath.equals(getSqlFilename()) || relativePath.equals(getPackageSummaryFilename()) ||
+               relativePath.equals(getChangesFilename()) || relativePath.startsWith(getCardsDirectory() + "/");
+    }
+
+    /**
+     * The format of the given file, relative to the context directory, when it holds rows of the
+     * given table, whole or one of its partitions, or {@code null} when it doesn't.
+     */
+    private @Nullable ExportFormat tableFileFormat(String relativePath, String tableFqn) {
+        String directory = tableToDirectory(tableFqn);
+        boolean partition = relativePath.startsWith(directory + "/") &&
+                            relativePath.indexOf('/', directory.length() + 1) < 0;
+        for (ExportFormat exportFormat : ExportFormat.values()) {
+            if (relativePath.endsWith(exportFormat.getExtension()) &&
+                (partition || relativePath.equals(directory + exportFormat.getExtension()))) {
+                return exportFormat;
             }
         }
         return null;
     }
 
+    /**
+     * Compare the table files the previous render left with the freshly rendered ones, keyed
+     * alike by path relative to the context directory, into the change report.
+     */
+    private String compare(Map<String, String> previousFiles, Map<String, String> renderedFiles,
+                           Map<String, List<DataTable<?>>> instancesByFqn) {
+        ContextChanges changes = new ContextChanges(displayName);
+        for (String tableFqn : dataTables) {
+            List<Field> columnFields;
+            try {
+                columnFields = projectColumns(getColumnFields(Class.forName(tableFqn + "$Row")));
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+            // A table without rows this time still has a display name for the rows it lost.
+            List<DataTable<?>> instances = instancesByFqn.get(tableFqn);
+            String tableDisplayName = instances == null || instances.isEmpty() ?
+                    tableFqn.substring(tableFqn.lastIndexOf('.') + 1) :
+                    instances.get(0).getDisplayName();
+            ContextChanges.Table table = changes.table(tableDisplayName, columnFields);
+            for (Map.Entry<String, String> file : previousFiles.entrySet()) {
+                ExportFormat fileFormat = tableFileFormat(file.getKey(), tableFqn);
+                if (fileFormat != null) {
+                    table.previous(file.getValue(), fileFormat);
+                }
+            }
+            for (Map.Entry<String, String> file : renderedFiles.entrySet()) {
+                ExportFormat fileFormat = tableFileFormat(file.getKey(), tableFqn);
+                if (fileFormat != null) {
+                    table.current(file.getValue(), fileFormat);
+                }
+            }
+        }
+        return changes.render();
+    }
+
+    /**
+     * Whether the given table has the partitioning column, and so is exported grouped by partition.
+     */
+    private boolean isPartitioned(String tableFqn) {
+        Partitioning partitioning = Partitioning.parse(partitionBy);
+        if (partitioning == null) {
+            return false;
+        }
+        try {
+            return partitioning.router(getColumnFields(Class.forName(tableFqn + "$Row"))) != null;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The fingerprint the previous render recorded for the rows of a table, with
+     * {@link #skipUnchanged}, or {@code null} when its files can't simply be left as they are:
+     * when the manifest doesn't list each of them, or one of them is missing or no longer has the
+     * hash it lists, having been edited since.
+     * A partitioned table is never skipped, as its files depend on how its rows are split up.
+     */
+    private @Nullable String previousFingerprint(Accumulator acc, String tableFqn) {
+        if (!Boolean.TRUE.equals(skipUnchanged) || isPartitioned(tableFqn)) {
+            return null;
+        }
+        List<String> files = new ArrayList<>(3);
+        files.add(tableToFilename(tableFqn));
+        if (isSearchable(tableFqn)) {
+            files.add(tableToDirectory(tableFqn) + SearchIndex.EXTENSION);
+        }
+        if (hasMembershipColumn(tableFqn)) {
+            files.add(tableToDirectory(tableFqn) + MembershipFilter.EXTENSION);
+        }
+        for (String file : files) {
+            ContextManifest.Entry entry = acc.previousManifest.get(CONTEXT_DIR.resolve(file).toString());
+            String hash = acc.existingHashes.get(file);
+            if (entry == null || hash == null || !entry.getHash().equals(hash)) {
+                return null;
+            }
+        }
+        return acc.previousManifest.get(CONTEXT_DIR.resolve(files.get(0)).toString()).getFingerprint();
+    }
+
+    /**
+     * Everything besides its rows that the files of a table depend on, fingerprinted along with them.
+     */
+    private String fingerprintConfiguration(List<Field> columnFields, ExportFormat exportFormat) {
+        StringJoiner configuration = new StringJoiner("\u0000");
+        configuration.add(String.valueOf(FINGERPRINT_VERSION))
+                .add(exportFormat.name())
+                .add(String.valueOf(rowFilters))
+                .add(String.valueOf(maxValueLength))
+                .add(String.valueOf(deduplicate))
+                .add(String.valueOf(sample))
+                .add(String.valueOf(searchColumns))
+                .add(String.valueOf(membershipColumns));
+        for (Field field : columnFields) {
+            configuration.add(field.getName()).add(field.getAnnotation(Column.class).displayName());
+        }
+        return configuration.toString();
+    }
+
+    /**
+     * Whether the given table has any of the {@link #searchColumns}, and so gets a search index.
+     */
+    private boolean isSearchable(String tableFqn) {
+        try {
+            return SearchIndex.Builder.forColumns(searchColumns, getColumnFields(Class.forName(tableFqn + "$Row"))) != null;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the given table has any of the {@link #membershipColumns}, and so gets a membership filter.
+     */
+    private boolean hasMembershipColumn(String tableFqn) {
+        try {
+            return MembershipFilter.Builder.forColumns(membershipColumns, getColumnFields(Class.forName(tableFqn + "$Row"))) != null;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
     /**
      * Get the kebab-cased filename for this context's markdown file.
      */
@@ -365,7 +1423,37 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
         return toKebabCase(displayName) + ".md";
     }
 
-    private String generateMarkdown(List<DataTableInfo> tables) {
+    /**
+     * Get the kebab-cased filename for this context's SQL script, see {@link #sqlScript}.
+     */
+    String getSqlFilename() {
+        return toKebabCase(displayName) + ".sql";
+    }
+
+    /**
+     * Get the kebab-cased filename for this context's package summary, see {@link #packageSummary}.
+     */
+    String getPackageSummaryFilename() {
+        return toKebabCase(displayName) + "-package-summary.csv";
+    }
+
+    /**
+     * Get the kebab-cased filename for this context's change report, see {@link #changeReport}. It
+     * is kept out of the top of the context directory, where every markdown file describes a context.
+     */
+    String getChangesFilename() {
+        return "changes/" + toKebabCase(displayName) + ".md";
+    }
+
+    /**
+     * Get the kebab-cased directory of this context's cards, see {@link #contextCards}.
+     */
+    String getCardsDirectory() {
+        return toKebabCase(displayName) + "-cards";
+    }
+
+    private String generateMarkdown(List<DataTableInfo> tables, List<Truncation> truncations,
+                                    @Nullable ContextBudget contextBudget, boolean hasCards, boolean hasPackageSummary) {
         StringBuilder sb = new StringBuilder();
 
         // Title
@@ -379,41 +1467,212 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
 
         // Data tables section
         sb.append("## Data Tables\n\n");
+        if (exportFormat() == ExportFormat.NDJSON) {
+            sb.append("Each line of a table file is a JSON object with one key per column, ")
+                    .append("numbers and booleans unquoted and missing values `null`.\n\n");
+        }
+        if (maxValueLength != null) {
+            sb.append("Values longer than ").append(maxValueLength)
+                    .append(" characters are truncated, ending in `…`.\n\n");
+        }
 
         for (DataTableInfo table : tables) {
             sb.append("### ").append(table.displayName).append("\n\n");
-            sb.append("**File:** [`").append(table.filename).append("`](").append(table.filename).append(")\n\n");
+            if (table.partitionedBy == null) {
+                sb.append("**File:** [`").append(table.filename).append("`](").append(table.filename).append(")\n\n");
+            } else {
+                String partitions = table.filename.substring(0, table.filename.lastIndexOf('/') + 1) + PARTITIONS +
+                                    exportFormat().getExtension();
+                sb.append("**File:** [`").append(partitions).append("`](").append(partitions)
+                        .append("), grouped by `").append(table.partitionedBy).append("`, with the lines of each partition ")
+                        .append("listed in [`").append(table.filename).append("`](").append(table.filename).append(")\n\n");
+            }
+            if (table.searchIndex != null) {
+                sb.append("**Search index:** [`").append(table.searchIndex).append("`](").append(table.searchIndex)
+                        .append("), for top-k searches with `").append(SearchIndex.class.getName()).append("`\n\n");
+            }
+            if (table.membershipFilter != null) {
+                String filename = table.membershipFilter.filename;
+                sb.append("**Membership filter:** [`").append(filename).append("`](").append(filename)
+                        .append("), to check with `").append(MembershipFilter.class.getName())
+                        .append("` whether a ").append(String.join(" or ", table.membershipFilter.keyColumns))
+                        .append(" might have a row before reading the table\n\n");
+            }
             sb.append(table.description).append("\n\n");
+            if (!table.filters.isEmpty()) {
+                sb.append("**Filtered:** only rows passing ");
+                for (int i = 0; i < table.filters.size(); i++) {
+                    sb.append(i == 0 ? "" : ", ").append('`').append(table.filters.get(i)).append('`');
+                }
+                sb.append(" are included.\n\n");
+            }
+            if (table.sample != null && table.sample.offered > table.sample.sampled) {
+                sb.append("**Sampled:** ").append(table.sample.sampled).append(" of ").append(table.sample.offered)
+                        .append(" rows, chosen at random");
+                if (table.sample.stratumColumn != null) {
+                    sb.append(" and shared evenly between the values of ").append(table.sample.stratumColumn);
+                }
+                sb.append(". Column statistics cover all ").append(table.sample.offered).append(" rows.\n\n");
+            }
+            if (table.duplicates > 0) {
+                sb.append("**Deduplicated:** ").append(table.duplicates)
+                        .append(table.duplicates == 1 ? " row identical to an earlier row was" :
+                                " rows identical to an earlier row were")
+                        .append(" dropped.\n\n");
+            }
 
-            // Column schema table
+            // Column schema table, with the shape of each column
             if (!table.columns.isEmpty()) {
-                sb.append("| Column | Description |\n");
-                sb.append("|--------|-------------|\n");
+                boolean keyed = table.columns.get(0).key != null;
+                boolean numeric = false;
                 for (ColumnInfo col : table.columns) {
-                    sb.append("| ").append(col.displayName).append(" | ").append(col.description).append(" |\n");
+                    numeric |= col.stats != null && col.stats.getMin() != null;
+                }
+                sb.append("**Rows:** ").append(table.rows);
+                if (table.totalRows > table.rows) {
+                    sb.append(" of ").append(table.totalRows).append(" total");
+                }
+                sb.append("\n\n");
+                sb.append("| Column |").append(keyed ? " Key |" : "")
+                        .append(" Description | Nulls | Distinct | Top values |").append(numeric ? " Range |" : "").append('\n');
+                sb.append("|--------|").append(keyed ? "-----|" : "")
+                        .append("-------------|-------|----------|------------|").append(numeric ? "-------|" : "").append('\n');
+                for (ColumnInfo col : table.columns) {
+                    sb.append("| ").append(col.displayName).append(" |");
+                    if (keyed) {
+                        sb.append(" `").append(col.key).append("` |");
+                    }
+                    sb.append(' ').append(col.description).append(" |");
+                    ColumnStats stats = col.stats;
+                    if (stats == null) {
+                        sb.append(" | | |").append(numeric ? " |" : "").append('\n');
+                        continue;
+                    }
+                    sb.append(' ').append(stats.getNulls()).append(" | ~").append(stats.estimateDistinct()).append(" |");
+                    List<Map.Entry<String, Long>> topValues = stats.topValues(TOP_VALUES);
+                    for (int i = 0; i < topValues.size(); i++) {
+                        sb.append(i == 0 ? " " : ", ").append(statisticValue(topValues.get(i).getKey()))
+                                .append(" (").append(topValues.get(i).getValue()).append(')');
+                    }
+                    sb.append(" |");
+                    if (numeric) {
+                        if (stats.getMin() != null) {
+                            sb.append(' ').append(stats.getMin().toPlainString()).append(" – ")
+                                    .append(stats.getMax().toPlainString());
+                        }
+                        sb.append(" |");
+                    }
+                    sb.append('\n');
                 }
                 sb.append("\n");
             }
         }
 
+        if (hasPackageSummary) {
+            String summaryFilename = getPackageSummaryFilename();
+            sb.append("## Package Summary\n\n");
+            sb.append("Read [`").append(summaryFilename).append("`](").append(summaryFilename)
+                    .append(") top-down before the tables: it has a row per package and ancestor package, parents ")
+                    .append("before their children, counting its classes and the rows of each table about them, with ")
+                    .append("their most frequent responsibilities, patterns and error handling strategies.\n\n");
+        }
+
+        if (hasCards) {
+            String cardIndex = getCardsDirectory() + "/" + ContextCards.INDEX;
+            sb.append("## Context Cards\n\n");
+            sb.append("Everything these tables say about a class is gathered in its card, so read the card of a ")
+                    .append("class before reading the tables in full. Cards are grouped by package in one file; ")
+                    .append("[`").append(cardIndex).append("`](").append(cardIndex)
+                    .append(") lists the card of every class.\n\n");
+        }
+
+        if (Boolean.TRUE.equals(changeReport)) {
+            String changesFilename = getChangesFilename();
+            sb.append("## Changes\n\n");
+            sb.append("[`").append(changesFilename).append("`](").append(changesFilename)
+                    .append(") lists the rows added, removed or changed in each table since the previous render, ")
+                    .append("matched on the key of their table.\n\n");
+        }
+
+        if (Boolean.TRUE.equals(sqlScript)) {
+            String sqlFilename = getSqlFilename();
+            sb.append("## SQL\n\n");
+            sb.append("Every table is also in [`").append(sqlFilename).append("`](").append(sqlFilename)
+                    .append("), with a typed column per key and indexes on class names, entity ids and ")
+                    .append("source paths. Load it with `sqlite3 context.db < ").append(sqlFilename)
+                    .append("` to query and join the tables. Values are not truncated, and rows are not subject to ")
+                    .append("any budget.\n\n");
+            sb.append("| Table | SQL table |\n");
+            sb.append("|-------|-----------|\n");
+            for (DataTableInfo table : tables) {
+                sb.append("| ").append(table.displayName).append(" | `").append(table.sqlTable).append("` |\n");
+            }
+            sb.append("\n");
+        }
+
+        if (!truncations.isEmpty()) {
+            sb.append("## Context Budget\n\n");
+            sb.append("These tables were truncated to fit a budget of ").append(contextBudget)
+                    .append(". Rows are ranked by how often the classes they mention are referenced across ")
+                    .append("this context's tables, and the highest ranked rows that fit are kept.\n\n");
+            sb.append("| Table | Rows kept | Rows total |\n");
+            sb.append("|-------|-----------|------------|\n");
+            for (Truncation truncation : truncations) {
+                sb.append("| ").append(truncation.displayName)
+                        .append(" | ").append(truncation.keptRows)
+                        .append(" | ").append(truncation.totalRows).append(" |\n");
+            }
+            sb.append("\n");
+        }
+
         return sb.toString();
     }
 
-    private List<ColumnInfo> getColumnInfo(DataTable<?> table) {
-        List<ColumnInfo> columns = new ArrayList<>();
-        for (Field field : table.getType().getDeclaredFields()) {
-            Column columnAnnotation = field.getAnnotation(Column.class);
-            if (columnAnnotation != null) {
-                columns.add(new ColumnInfo(columnAnnotation.displayName(), columnAnnotation.description()));
+    /**
+     * A value of a column statistic as inline code, shortened and escaped so it can't break the
+     * schema table.
+     */
+    private static String statisticValue(String value) {
+        String cell = value.replace("`", "'").replace("|", "\\|")
+                .replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+        return "`" + (cell.length() > MAX_STATISTIC_LENGTH ? cell.substring(0, MAX_STATISTIC_LENGTH - 1) + "…" : cell) + "`";
+    }
+
+    private static void readValues(List<Field> columnFields, Object row, @Nullable Object[] rawValues) {
+        for (int i = 0; i < columnFields.size(); i++) {
+            try {
+                rawValues[i] = columnFields.get(i).get(row);
+            } catch (IllegalAccessException e) {
+                rawValues[i] = null;
             }
         }
-        return columns;
+    }
+
+    private List<ColumnInfo> getColumnInfo(List<Field> columnFields, ExportFormat exportFormat, ColumnStats[] stats) {
+        List<ColumnInfo> columnInfos = new ArrayList<>(columnFields.size());
+        for (int i = 0; i < columnFields.size(); i++) {
+            Column columnAnnotation = columnFields.get(i).getAnnotation(Column.class);
+            columnInfos.add(new ColumnInfo(columnAnnotation.displayName(),
+                    exportFormat == ExportFormat.NDJSON || Boolean.TRUE.equals(sqlScript) ? columnFields.get(i).getName() : null,
+                    columnAnnotation.description(),
+                    i < stats.length ? stats[i] : null));
+        }
+        return columnInfos;
     }
 
     private String tableToFilename(String tableFqn) {
         // org.openrewrite.prethink.table.MethodDescriptions -> method-descriptions.csv
+        return tableToDirectory(tableFqn) + exportFormat().getExtension();
+    }
+
+    private ExportFormat exportFormat() {
+        return ExportFormat.parse(format);
+    }
+
+    private String tableToDirectory(String tableFqn) {
+        // org.openrewrite.prethink.table.MethodDescriptions -> method-descriptions
         String simpleName = tableFqn.substring(tableFqn.lastIndexOf('.') + 1);
-        return toKebabCase(simpleName) + ".csv";
+        return toKebabCase(simpleName);
     }
 
     private String toKebabCase(String input) {
@@ -446,7 +1705,7 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
     private String getHeadersFromTableFqn(String tableFqn) {
         try {
             Class<?> rowClass = Class.forName(tableFqn + "$Row");
-            List<Field> columnFields = getColumnFields(rowClass);
+            List<Field> columnFields = projectColumns(getColumnFields(rowClass));
 
             StringWriter stringWriter = new StringWriter();
             CsvWriter writer = new CsvWriter(stringWriter, new CsvWriterSettings());
@@ -473,17 +1732,141 @@ public class ExportContext extends ScanningRecipe<ExportContext.Accumulator> {
         return columnFields;
     }
 
+    @Value
+    private static class RenderedTable {
+        String table;
+        String text;
+        long rows;
+
+        /**
+         * The ranking ids of the classes each row mentions, {@link #classColumns} per row, when
+         * rendered for a budget.
+         */
+        int[] classIds;
+        int classColumns;
+
+        /**
+         * The index into {@link #partitionKeys} of each row's partition, when partitioned.
+         */
+        int[] partitionOf;
+
+        @Nullable
+        List<String> partitionKeys;
+
+        SearchIndex.@Nullable Builder search;
+
+        MembershipFilter.@Nullable Builder membership;
+
+        /**
+         * The statistics of each projected column over every row that passed the filters, before
+         * any were pruned to fit the budget.
+         */
+        ColumnStats[] columnStats;
+
+        /**
+         * The rows dropped as duplicates of an earlier row, with {@link #deduplicate}.
+         */
+        long duplicates;
+
+        @Nullable
+        SampleInfo sample;
+
+        /**
+         * The {@link TableFingerprint} of the rows, with {@link #skipUnchanged}.
+         */
+        @Nullable
+        String fingerprint;
+    }
+
+    @Value
+    private static class PartitionSpan {
+        long rows;
+
+        /**
+         * The first and last line of the partition's rows, counting from 1.
+         */
+        int firstLine;
+        int lastLine;
+    }
+
+    @Value
+    private static class SampleInfo {
+        /**
+         * The rows that passed the filters and were offered to the reservoir.
+         */
+        long offered;
+
+        long sampled;
+
+        @Nullable
+        String stratumColumn;
+    }
+
+    @Value
+    private static class Truncation {
+        String displayName;
+        long keptRows;
+        long totalRows;
+    }
+
     @Value
     private static class DataTableInfo {
         String displayName;
         String description;
         String filename;
+
+        /**
+         * The rows written to the table's files.
+         */
+        long rows;
+
+        /**
+         * The rows that passed the filters, which the column statistics describe, before any were
+         * sampled or pruned to fit the budget.
+         */
+        long totalRows;
+
         List<ColumnInfo> columns;
+        List<String> filters;
+
+        @Nullable
+        String partitionedBy;
+
+        @Nullable
+        String searchIndex;
+
+        @Nullable
+        MembershipInfo membershipFilter;
+
+        @Nullable
+        String sqlTable;
+
+        long duplicates;
+
+        @Nullable
+        SampleInfo sample;
+    }
+
+    @Value
+    private static class MembershipInfo {
+        String filename;
+        List<String> keyColumns;
     }
 
     @Value
     private static class ColumnInfo {
         String displayName;
+
+        /**
+         * The key of the column in each JSON object, for {@link ExportFormat#NDJSON}, and its name
+         * in the SQL script.
+         */
+        @Nullable
+        String key;
+
         String description;
+
+        @Nullable
+        ColumnStats stats;
     }
 }
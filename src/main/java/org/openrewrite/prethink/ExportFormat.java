@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The file formats {@link ExportContext} can write a data table in.
+ */
+enum ExportFormat {
+
+    /**
+     * A header row of column display names followed by one row per data table row.
+     */
+    CSV(".csv"),
+
+    /**
+     * Newline delimited JSON: one object per data table row, keyed by column field name, with
+     * numbers and booleans kept as such. There is no header, and since JSON strings escape line
+     * breaks, every line is exactly one row.
+     */
+    NDJSON(".ndjson");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parse a format name, returning {@link #CSV} when none is given.
+     *
+     * @throws IllegalArgumentException when the format is unknown
+     */
+    static ExportFormat parse(@Nullable String format) {
+        if (format == null || format.trim().isEmpty()) {
+            return CSV;
+        }
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format '" + format + "', expected 'csv' or 'ndjson'", e);
+        }
+    }
+
+    /**
+     * The end offsets of the header, which is empty for {@link #NDJSON}, and of every row of a
+     * rendered table.
+     */
+    int[] recordEnds(String text) {
+        int[] ends = new int[16];
+        int records = 0;
+        if (this == NDJSON) {
+            ends[records++] = 0;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' && this == CSV) {
+                // A newline inside a quoted CSV value does not end a record.
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                if (records == ends.length) {
+                    ends = Arrays.copyOf(ends, records * 2);
+                }
+                ends[records++] = i + 1;
+            }
+        }
+        if (records == 0 || ends[records - 1] < text.length()) {
+            if (records == ends.length) {
+                ends = Arrays.copyOf(ends, records + 1);
+            }
+            ends[records++] = text.length();
+        }
+        return Arrays.copyOf(ends, records);
+    }
+}
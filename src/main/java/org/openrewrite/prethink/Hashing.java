@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The hashing behind {@link MembershipFilter}, {@link ColumnStats}, {@link RowFingerprints} and
+ * {@link TableFingerprint}: FNV-style folding of characters, finished with the MurmurHash3
+ * finalizer so that every bit of the result depends on every character.
+ */
+final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The start and multiplier of the second half of a {@link Hash128}, chosen apart from the
+     * first's so that the two halves are independent.
+     */
+    private static final long LOW_OFFSET_BASIS = 0x84222325cbf29ce4L;
+    private static final long LOW_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private Hashing() {
+    }
+
+    /**
+     * A 64-bit hash of a key, FNV-1a over its characters.
+     */
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 finalizer.
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * A 128-bit hash of a sequence of values, folded in as they are appended. Each value is led
+     * by its length, or -1 when it is missing, so that different values can't run together into
+     * the same characters.
+     */
+    static final class Hash128 {
+        private long high = FNV_OFFSET_BASIS;
+        private long low = LOW_OFFSET_BASIS;
+
+        void reset() {
+            high = FNV_OFFSET_BASIS;
+            low = LOW_OFFSET_BASIS;
+        }
+
+        void append(@Nullable String text) {
+            fold(text == null ? -1 : text.length());
+            if (text == null) {
+                return;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                fold(text.charAt(i));
+            }
+        }
+
+        private void fold(long symbol) {
+            high = (high ^ symbol) * FNV_PRIME;
+            low = (low ^ symbol) * LOW_MULTIPLIER + 1;
+        }
+
+        long high() {
+            return mix(high);
+        }
+
+        long low() {
+            return mix(low);
+        }
+    }
+}
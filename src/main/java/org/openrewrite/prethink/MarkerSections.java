@@ -0,0 +1,241 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Sections of a text file delimited by HTML comment markers, such as
+ * <pre>
+ * &lt;!-- prethink-context --&gt;
+ * ...
+ * &lt;!-- /prethink-context --&gt;
+ * </pre>
+ * Each section is owned by whoever writes its name. The markers of all owned sections are found in
+ * one linear scan, and {@link #splice(Map)} replaces them in one pass without regular expressions.
+ * Begin markers may carry attributes after the name, e.g. {@code <!-- prethink-context hash=abc -->}.
+ * <p>
+ * Malformed files are repaired conservatively: the first complete section of a name is replaced,
+ * later duplicates are removed, and a begin or end marker without a partner is treated as a bare
+ * marker, so that no text outside a complete section is ever dropped.
+ */
+final class MarkerSections {
+
+    private final String content;
+    private final List<Marker> markers;
+
+    private MarkerSections(String content, List<Marker> markers) {
+        this.content = content;
+        this.markers = markers;
+    }
+
+    static String beginMarker(String name, Map<String, String> attributes) {
+        StringBuilder sb = new StringBuilder("<!-- ").append(name);
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            sb.append(' ').append(attribute.getKey()).append('=').append(attribute.getValue());
+        }
+        return sb.append(" -->").toString();
+    }
+
+    static String endMarker(String name) {
+        return "<!-- /" + name + " -->";
+    }
+
+    /**
+     * Find the sections with the given names in {@code content}.
+     */
+    static MarkerSections parse(String content, Set<String> names) {
+        List<Marker> markers = new ArrayList<>();
+        Map<String, Marker> openBegins = new HashMap<>();
+        int from = 0;
+        while (true) {
+            int open = content.indexOf("<!--", from);
+            if (open < 0) {
+                break;
+            }
+            int close = content.indexOf("-->", open + 4);
+            if (close < 0) {
+                break;
+            }
+            from = close + 3;
+
+            int nameStart = open + 4;
+            while (nameStart < close && Character.isWhitespace(content.charAt(nameStart))) {
+                nameStart++;
+            }
+            boolean end = nameStart < close && content.charAt(nameStart) == '/';
+            if (end) {
+                nameStart++;
+            }
+            int nameEnd = nameStart;
+            while (nameEnd < close && !Character.isWhitespace(content.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String name = content.substring(nameStart, nameEnd);
+            if (!names.contains(name)) {
+                continue;
+            }
+
+            if (end) {
+                Marker begin = openBegins.remove(name);
+                if (begin == null) {
+                    markers.add(new Marker(name, open, from, false, null));
+                } else {
+                    // Widen the begin marker into the complete section.
+                    begin.end = from;
+                    begin.complete = true;
+                }
+            } else {
+                Marker begin = new Marker(name, open, from, false,
+                        content.substring(nameEnd, close).trim());
+                // A repeated begin marker leaves the previous one unpaired.
+                openBegins.put(name, begin);
+                markers.add(begin);
+            }
+        }
+        return new MarkerSections(content, markers);
+    }
+
+    /**
+     * The begin marker attributes of the first complete section with this name, the empty string
+     * when it has none, or {@code null} when there is no complete section.
+     */
+    @Nullable String attributes(String name) {
+        for (Marker marker : markers) {
+            if (marker.complete && marker.name.equals(name)) {
+                return marker.attributes;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The value of a {@code key=value} attribute on the begin marker of the first complete section
+     * with this name, or {@code null} when there is no such section or attribute.
+     */
+    @Nullable String attribute(String name, String key) {
+        String attributes = attributes(name);
+        if (attributes == null) {
+            return null;
+        }
+        String prefix = key + "=";
+        for (String attribute : attributes.split("\\s+")) {
+            if (attribute.startsWith(prefix)) {
+                return attribute.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the markers with this name form exactly one complete section, with no duplicate
+     * sections or unpaired markers that {@link #splice(Map)} would have to repair.
+     */
+    boolean isSingleSection(String name) {
+        int complete = 0;
+        for (Marker marker : markers) {
+            if (marker.name.equals(name)) {
+                if (!marker.complete) {
+                    return false;
+                }
+                complete++;
+            }
+        }
+        return complete == 1;
+    }
+
+    /**
+     * Replace each named section with the given text, which should include its own markers.
+     * A section is written where its first complete occurrence was, otherwise where its first bare
+     * begin marker was, otherwise appended to the end of the file after a blank line.
+     */
+    String splice(Map<String, String> sectionsByName) {
+        Set<String> complete = new HashSet<>();
+        for (Marker marker : markers) {
+            if (marker.complete) {
+                complete.add(marker.name);
+            }
+        }
+
+        int length = content.length();
+        for (String section : sectionsByName.values()) {
+            length += section.length() + 2;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        Set<String> written = new HashSet<>();
+        int copied = 0;
+        for (Marker marker : markers) {
+            String section = sectionsByName.get(marker.name);
+            if (section == null || marker.start < copied) {
+                // Not ours to replace, or nested inside a section that was already replaced.
+                continue;
+            }
+            sb.append(content, copied, marker.start);
+            copied = marker.end;
+            boolean placeHere = marker.complete || (!marker.isEnd() && !complete.contains(marker.name));
+            if (placeHere && written.add(marker.name)) {
+                sb.append(section);
+            } else if (startsLine(sb) && copied < content.length() && content.charAt(copied) == '\n') {
+                // Dropping a marker or duplicate that stood on its own line: drop the line too.
+                copied++;
+            }
+        }
+        sb.append(content, copied, content.length());
+
+        for (Map.Entry<String, String> entry : sectionsByName.entrySet()) {
+            if (!written.contains(entry.getKey())) {
+                if (sb.length() > 0) {
+                    if (sb.charAt(sb.length() - 1) != '\n') {
+                        sb.append('\n');
+                    }
+                    sb.append('\n');
+                }
+                sb.append(entry.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean startsLine(StringBuilder sb) {
+        return sb.length() == 0 || sb.charAt(sb.length() - 1) == '\n';
+    }
+
+    private static class Marker {
+        final String name;
+        final int start;
+        int end;
+        boolean complete;
+
+        /**
+         * For begin markers, any text after the name; {@code null} for end markers.
+         */
+        final @Nullable String attributes;
+
+        Marker(String name, int start, int end, boolean complete, @Nullable String attributes) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.complete = complete;
+            this.attributes = attributes;
+        }
+
+        boolean isEnd() {
+            return attributes == null;
+        }
+    }
+}
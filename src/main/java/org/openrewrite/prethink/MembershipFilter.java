@@ -0,0 +1,218 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A Bloom filter over the values of a table's key columns, written by {@link ExportContext} next
+ * to the table as {@code <table>.bloom}, that tells whether a table might have a row for a key,
+ * such as a class name, without reading the table. A negative answer is always right; a positive
+ * one is wrong for about {@link #FALSE_POSITIVE_RATE} of the keys the table doesn't have.
+ * <pre>{@code
+ * MembershipFilter filter = MembershipFilter.read(Paths.get(".moderne/context/test-mapping.bloom"));
+ * if (filter.mightContain("com.acme.OrderService")) {
+ *     // read test-mapping.csv
+ * }
+ * }</pre>
+ * The filter is a text file, so that it can be committed alongside the tables: a line each for
+ * the number of distinct keys, hash functions and bits, then the bits in base64.
+ */
+public final class MembershipFilter {
+
+    public static final String EXTENSION = ".bloom";
+
+    static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final Base64.Encoder ENCODER = Base64.getMimeEncoder(76, new byte[]{'\n'});
+
+    private final int hashes;
+    private final long[] bits;
+    private final long bitCount;
+
+    private MembershipFilter(int hashes, long[] bits, long bitCount) {
+        this.hashes = hashes;
+        this.bits = bits;
+        this.bitCount = bitCount;
+    }
+
+    public static MembershipFilter read(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the text is not a membership filter
+     */
+    public static MembershipFilter parse(String text) {
+        int hashes = -1;
+        long bitCount = -1;
+        StringBuilder encoded = new StringBuilder();
+        for (String line : text.split("\n")) {
+            if (line.startsWith("#") || line.startsWith("keys ")) {
+                continue;
+            } else if (line.startsWith("hashes ")) {
+                hashes = Integer.parseInt(line.substring("hashes ".length()).trim());
+            } else if (line.startsWith("bits ")) {
+                bitCount = Long.parseLong(line.substring("bits ".length()).trim());
+            } else {
+                encoded.append(line.trim());
+            }
+        }
+        if (hashes < 1 || bitCount < 1) {
+            throw new IllegalArgumentException("Membership filter is missing its hashes or bits");
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Base64.getDecoder().decode(encoded.toString()));
+        long[] bits = new long[(int) ((bitCount + 63) / 64)];
+        if (bytes.remaining() != bits.length * 8) {
+            throw new IllegalArgumentException("Membership filter has " + bytes.remaining() +
+                                               " bytes of bits, expected " + bits.length * 8);
+        }
+        bytes.asLongBuffer().get(bits);
+        return new MembershipFilter(hashes, bits, bitCount);
+    }
+
+    /**
+     * Whether the table might have a row with {@code key} in one of its key columns. When
+     * {@code false}, it certainly has none.
+     */
+    public boolean mightContain(String key) {
+        long hash = Hashing.hash(key);
+        for (int i = 0; i < hashes; i++) {
+            long bit = bit(hash, i, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The {@code i}-th bit of a key, derived from the two halves of its hash rather than from
+     * {@code i} independent hashes (Kirsch and Mitzenmacher).
+     */
+    private static long bit(long hash, int i, long bitCount) {
+        long h1 = (int) hash;
+        long h2 = (int) (hash >>> 32);
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+
+    /**
+     * Collects the key hashes of a table's rows as they stream out of the store, sizing the
+     * filter to the number of distinct keys once they are all known.
+     */
+    static final class Builder {
+        private final List<Field> keyFields;
+        private long[] hashes = new long[64];
+        private int size;
+
+        private Builder(List<Field> keyFields) {
+            this.keyFields = keyFields;
+        }
+
+        /**
+         * A builder over the {@code keyColumns} a table with the given {@code @Column} fields
+         * has, or {@code null} when it has none of them.
+         */
+        static @Nullable Builder forColumns(@Nullable List<String> keyColumns, List<Field> columnFields) {
+            if (keyColumns == null || keyColumns.isEmpty()) {
+                return null;
+            }
+            List<Field> keyFields = new ArrayList<>();
+            for (Field field : columnFields) {
+                String displayName = field.getAnnotation(Column.class).displayName();
+                for (String column : keyColumns) {
+                    if (field.getName().equals(column) || displayName.equalsIgnoreCase(column)) {
+                        field.setAccessible(true);
+                        keyFields.add(field);
+                        break;
+                    }
+                }
+            }
+            return keyFields.isEmpty() ? null : new Builder(keyFields);
+        }
+
+        List<String> getKeyColumns() {
+            List<String> keyColumns = new ArrayList<>(keyFields.size());
+            for (Field field : keyFields) {
+                keyColumns.add(field.getAnnotation(Column.class).displayName());
+            }
+            return keyColumns;
+        }
+
+        void add(Object row) {
+            for (Field field : keyFields) {
+                Object value;
+                try {
+                    value = field.get(row);
+                } catch (IllegalAccessException e) {
+                    value = null;
+                }
+                if (value == null || value.toString().isEmpty()) {
+                    continue;
+                }
+                if (size == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                }
+                hashes[size++] = Hashing.hash(value.toString());
+            }
+        }
+
+        String write(String title) {
+            // Rows repeat keys, so count the distinct ones to size the filter.
+            long[] sorted = Arrays.copyOf(hashes, size);
+            Arrays.sort(sorted);
+            int keys = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[keys++] = sorted[i];
+                }
+            }
+
+            // The optimal size and number of hashes for the false positive rate.
+            long bitCount = Math.max(64, (long) Math.ceil(-Math.max(keys, 1) * Math.log(FALSE_POSITIVE_RATE) /
+                                                          (Math.log(2) * Math.log(2))));
+            int hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(keys, 1) * Math.log(2)));
+            long[] bits = new long[(int) ((bitCount + 63) / 64)];
+            for (int k = 0; k < keys; k++) {
+                for (int i = 0; i < hashCount; i++) {
+                    long bit = bit(sorted[k], i, bitCount);
+                    bits[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(bits.length * 8);
+            bytes.asLongBuffer().put(bits);
+
+            return "# " + title + "\n" +
+                   "# Query with " + MembershipFilter.class.getName() + "\n" +
+                   "keys " + keys + "\n" +
+                   "hashes " + hashCount + "\n" +
+                   "bits " + bitCount + "\n" +
+                   ENCODER.encodeToString(bytes.array()) + "\n";
+        }
+    }
+}
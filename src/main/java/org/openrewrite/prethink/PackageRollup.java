@@ -0,0 +1,234 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * A summary of one {@link ExportContext}'s tables per package and every ancestor package, so that
+ * an agent can read a large codebase top-down, from its top-level packages to the ones it cares
+ * about, before drilling into the rows themselves.
+ * <p>
+ * Each row is attributed to the package of the first class it mentions. Rows are tallied per
+ * package as they stream out of the store, and the tallies are only rolled up the package
+ * hierarchy once every table is read, so the work of the roll-up depends on the number of
+ * packages rather than of rows.
+ */
+final class PackageRollup {
+
+    /**
+     * The categorical columns whose most frequent values characterize a package, by the label of
+     * their summary column. Pattern columns are pooled, since they are ranked, not distinct, facets.
+     */
+    private static final Map<String, List<String>> TOP_VALUE_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        TOP_VALUE_COLUMNS.put("Top responsibilities", Collections.singletonList("responsibility"));
+        TOP_VALUE_COLUMNS.put("Top patterns", Arrays.asList("pattern1", "pattern2", "pattern3"));
+        TOP_VALUE_COLUMNS.put("Top error handling", Collections.singletonList("handlingStrategy"));
+    }
+
+    private static final int TOP_VALUES = 3;
+
+    private final List<String> tables = new ArrayList<>();
+    private final Map<String, Tally> tallies = new HashMap<>();
+
+    /**
+     * Start tallying the rows of a table with the given {@code @Column} fields, or return
+     * {@code null} when it has no class column to attribute its rows to a package by.
+     */
+    @Nullable Table table(String displayName, List<Field> columnFields) {
+        List<Field> classFields = new ArrayList<>();
+        int[] topValueColumn = new int[columnFields.size()];
+        Arrays.fill(topValueColumn, -1);
+        for (int i = 0; i < columnFields.size(); i++) {
+            Field field = columnFields.get(i);
+            if (field.getAnnotation(Column.class).displayName().toLowerCase(Locale.ROOT).contains("class")) {
+                field.setAccessible(true);
+                classFields.add(field);
+            }
+            int column = 0;
+            for (List<String> fieldNames : TOP_VALUE_COLUMNS.values()) {
+                if (fieldNames.contains(field.getName())) {
+                    field.setAccessible(true);
+                    topValueColumn[i] = column;
+                }
+                column++;
+            }
+        }
+        if (classFields.isEmpty()) {
+            return null;
+        }
+        tables.add(displayName);
+        return new Table(tables.size() - 1, classFields, columnFields, topValueColumn);
+    }
+
+    boolean isEmpty() {
+        return tallies.isEmpty();
+    }
+
+    /**
+     * Roll the tallies up the package hierarchy and render them as a CSV, parents before their
+     * children.
+     */
+    String render() {
+        Map<String, Tally> rolledUp = new TreeMap<>();
+        for (Map.Entry<String, Tally> tally : tallies.entrySet()) {
+            String packageName = tally.getKey();
+            for (int dot = packageName.indexOf('.'); ; dot = packageName.indexOf('.', dot + 1)) {
+                String ancestor = dot < 0 ? packageName : packageName.substring(0, dot);
+                rolledUp.computeIfAbsent(ancestor, k -> new Tally()).add(tally.getValue());
+                if (dot < 0) {
+                    break;
+                }
+            }
+        }
+
+        List<String> headers = new ArrayList<>(Arrays.asList("Package", "Depth", "Classes"));
+        for (String table : tables) {
+            headers.add(table + " rows");
+        }
+        headers.addAll(TOP_VALUE_COLUMNS.keySet());
+
+        StringWriter sw = new StringWriter();
+        CsvWriter writer = new CsvWriter(sw, new CsvWriterSettings());
+        writer.writeHeaders(headers.toArray(new String[0]));
+        for (Map.Entry<String, Tally> pkg : rolledUp.entrySet()) {
+            Tally tally = pkg.getValue();
+            List<Object> row = new ArrayList<>(headers.size());
+            row.add(pkg.getKey());
+            row.add(Partitioning.ROOT.equals(pkg.getKey()) ? 0 : pkg.getKey().split("\\.").length);
+            row.add(tally.classCount);
+            for (int table = 0; table < tables.size(); table++) {
+                row.add(table < tally.rows.length ? tally.rows[table] : 0);
+            }
+            for (Map<String, Long> values : tally.values) {
+                row.add(topValues(values));
+            }
+            writer.writeRow(row.toArray());
+        }
+        writer.close();
+        return sw.toString();
+    }
+
+    private static String topValues(Map<String, Long> counts) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(TOP_VALUES, entries.size()); i++) {
+            Map.Entry<String, Long> entry = entries.get(i);
+            sb.append(i == 0 ? "" : "; ").append(entry.getKey()).append(" (").append(entry.getValue()).append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The rows of one table, tallied as they stream by.
+     */
+    final class Table {
+        private final int index;
+        private final List<Field> classFields;
+        private final List<Field> columnFields;
+        private final int[] topValueColumn;
+
+        private Table(int index, List<Field> classFields, List<Field> columnFields, int[] topValueColumn) {
+            this.index = index;
+            this.classFields = classFields;
+            this.columnFields = columnFields;
+            this.topValueColumn = topValueColumn;
+        }
+
+        void add(Object row) {
+            Tally tally = null;
+            for (Field field : classFields) {
+                String className = get(field, row);
+                if (className.isEmpty()) {
+                    continue;
+                }
+                String packageName = Partitioning.packageName(className);
+                Tally classTally = tallies.computeIfAbsent(packageName.isEmpty() ? Partitioning.ROOT : packageName,
+                        k -> new Tally());
+                classTally.classes.add(className);
+                if (tally == null) {
+                    tally = classTally;
+                }
+            }
+            if (tally == null) {
+                return;
+            }
+            if (index >= tally.rows.length) {
+                tally.rows = Arrays.copyOf(tally.rows, index + 1);
+            }
+            tally.rows[index]++;
+            for (int i = 0; i < topValueColumn.length; i++) {
+                if (topValueColumn[i] >= 0) {
+                    String value = get(columnFields.get(i), row);
+                    if (!value.isEmpty()) {
+                        tally.values.get(topValueColumn[i]).merge(value, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+
+        private String get(Field field, Object row) {
+            try {
+                Object value = field.get(row);
+                return value == null ? "" : value.toString();
+            } catch (IllegalAccessException e) {
+                return "";
+            }
+        }
+    }
+
+    private static class Tally {
+        /**
+         * The distinct classes of a package itself. Rolled up tallies only need their number,
+         * since packages never share classes.
+         */
+        final Set<String> classes = new HashSet<>();
+        long classCount;
+        long[] rows = new long[0];
+        final List<Map<String, Long>> values = new ArrayList<>(TOP_VALUE_COLUMNS.size());
+
+        Tally() {
+            for (int i = 0; i < TOP_VALUE_COLUMNS.size(); i++) {
+                values.add(new HashMap<>());
+            }
+        }
+
+        void add(Tally other) {
+            classCount += other.classes.size();
+            if (other.rows.length > rows.length) {
+                rows = Arrays.copyOf(rows, other.rows.length);
+            }
+            for (int i = 0; i < other.rows.length; i++) {
+                rows[i] += other.rows[i];
+            }
+            for (int i = 0; i < values.size(); i++) {
+                for (Map.Entry<String, Long> value : other.values.get(i).entrySet()) {
+                    values.get(i).merge(value.getKey(), value.getValue(), Long::sum);
+                }
+            }
+        }
+    }
+}
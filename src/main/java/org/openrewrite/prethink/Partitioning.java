@@ -0,0 +1,218 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * How {@link ExportContext} groups the rows of a table by partition, written as a column name
+ * with an optional depth, e.g. {@code Source path} or {@code Class name:2}.
+ * <p>
+ * The partition of a row is derived from the raw value of that column: a path is partitioned by
+ * its module, the directories before {@code src/}, and a fully qualified name by its package, the
+ * segments before the first capitalized one. A depth keeps only that many leading directories or
+ * package segments, so that {@code Class name:2} groups {@code com.acme.core} and
+ * {@code com.acme.api} together as {@code com.acme}.
+ */
+final class Partitioning {
+
+    /**
+     * Beyond this many partitions, rows of further partitions share the {@link #OTHER} partition,
+     * bounding the partition index and the per-partition bookkeeping of a pass.
+     */
+    static final int MAX_PARTITIONS = 256;
+
+    static final String OTHER = "_other";
+
+    static final String ROOT = "_root";
+
+    private final String source;
+    private final String column;
+    private final int depth;
+
+    private Partitioning(String source, String column, int depth) {
+        this.source = source;
+        this.column = column;
+        this.depth = depth;
+    }
+
+    /**
+     * Parse a partitioning, returning {@code null} when none is given.
+     *
+     * @throws IllegalArgumentException when the partitioning is malformed
+     */
+    static @Nullable Partitioning parse(@Nullable String partitionBy) {
+        if (partitionBy == null || partitionBy.trim().isEmpty()) {
+            return null;
+        }
+        String column = partitionBy.trim();
+        int depth = 0;
+        int colon = column.lastIndexOf(':');
+        if (colon >= 0) {
+            try {
+                depth = Integer.parseInt(column.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                depth = -1;
+            }
+            column = column.substring(0, colon).trim();
+            if (depth <= 0 || column.isEmpty()) {
+                throw new IllegalArgumentException("Invalid partitioning '" + partitionBy +
+                                                   "', expected a column optionally followed by a positive depth, e.g. 'Class name:2'");
+            }
+        }
+        return new Partitioning(partitionBy.trim(), column, depth);
+    }
+
+    /**
+     * The field of the partitioning column among a table's {@code @Column} fields, made
+     * accessible, or {@code null} when the table doesn't have it and so isn't partitioned.
+     */
+    private @Nullable Field bind(List<Field> columnFields) {
+        for (Field field : columnFields) {
+            if (field.getName().equals(column) ||
+                field.getAnnotation(Column.class).displayName().equalsIgnoreCase(column)) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A router for the rows of a table with the given {@code @Column} fields, or {@code null} when
+     * the table doesn't have the partitioning column and so isn't partitioned.
+     */
+    @Nullable Router router(List<Field> columnFields) {
+        Field field = bind(columnFields);
+        return field == null ? null : new Router(field);
+    }
+
+    /**
+     * The partition of a row with the given value in the partitioning column.
+     */
+    String key(@Nullable Object value) {
+        String text = value == null ? "" : value.toString();
+        String key;
+        char separator;
+        if (text.indexOf('/') >= 0 || text.indexOf('\\') >= 0) {
+            key = module(text.replace('\\', '/'));
+            separator = '/';
+        } else {
+            key = packageName(text);
+            separator = '.';
+        }
+        if (depth > 0) {
+            int end = -1;
+            for (int segment = 0; segment < depth; segment++) {
+                end = key.indexOf(separator, end + 1);
+                if (end < 0) {
+                    break;
+                }
+            }
+            if (end >= 0) {
+                key = key.substring(0, end);
+            }
+        }
+        return key.isEmpty() ? ROOT : key;
+    }
+
+    private static String module(String path) {
+        if (path.startsWith("src/")) {
+            return "";
+        }
+        int src = path.indexOf("/src/");
+        if (src >= 0) {
+            return path.substring(0, src);
+        }
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash < 0 ? "" : path.substring(0, lastSlash);
+    }
+
+    static String packageName(String name) {
+        int start = 0;
+        while (start < name.length()) {
+            int end = name.indexOf('.', start);
+            if (end < 0 || Character.isUpperCase(name.charAt(start))) {
+                break;
+            }
+            start = end + 1;
+        }
+        return start == 0 ? "" : name.substring(0, start - 1);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Routes the rows of one table to their partitions as they stream by, recording the partition
+     * of each row rather than buffering the rows themselves.
+     */
+    final class Router {
+        private final Field field;
+        private final Map<String, Integer> idsByKey = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private int[] partitionOf = new int[64];
+        private int rows;
+
+        private Router(Field field) {
+            this.field = field;
+        }
+
+        void route(Object row) {
+            Object value;
+            try {
+                value = field.get(row);
+            } catch (IllegalAccessException e) {
+                value = null;
+            }
+            String key = key(value);
+            Integer id = idsByKey.get(key);
+            if (id == null && keys.size() >= MAX_PARTITIONS) {
+                key = OTHER;
+                id = idsByKey.get(key);
+            }
+            if (id == null) {
+                id = keys.size();
+                keys.add(key);
+                idsByKey.put(key, id);
+            }
+            if (rows == partitionOf.length) {
+                partitionOf = Arrays.copyOf(partitionOf, rows * 2);
+            }
+            partitionOf[rows++] = id;
+        }
+
+        /**
+         * The partition keys, indexed by the ids of {@link #getPartitionOf()}.
+         */
+        List<String> getKeys() {
+            return keys;
+        }
+
+        /**
+         * The partition id of every routed row, in order.
+         */
+        int[] getPartitionOf() {
+            return Arrays.copyOf(partitionOf, rows);
+        }
+    }
+}
@@ -15,11 +15,14 @@
  */
 package org.openrewrite.prethink;
 
+import org.openrewrite.Recipe;
+
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 /**
- * Shared constants for Prethink recipes.
+ * Shared constants for Prethink recipes, and the means for recipes outside this package to
+ * request the fill cycle.
  */
 public final class Prethink {
 
@@ -39,6 +42,34 @@ public final class Prethink {
      */
     public static final String CYCLE_TRIGGER = "io.moderne.prethink.cycleTrigger";
 
+    /**
+     * ExecutionContext message key under which {@link ExportContext} publishes the context files
+     * it rendered in the current run (see {@link RenderedContext}), so that sibling recipes can act
+     * on them in the same cycle rather than rescanning them from the LST one cycle later.
+     */
+    public static final String RENDERED_CONTEXT = "io.moderne.prethink.renderedContext";
+
+    /**
+     * ExecutionContext message key under which
+     * {@link org.openrewrite.prethink.calm.GenerateCalmArchitecture} publishes the CALM architecture
+     * it rendered in the current run, which {@link RenderedContext} lists with the other context files.
+     */
+    public static final String RENDERED_CALM = "io.moderne.prethink.renderedCalm";
+
+    /**
+     * ExecutionContext message key recording that the {@link ContextManifest} placeholder has been
+     * generated in this run, so that only one of the recipes writing the manifest generates it.
+     */
+    public static final String CONTEXT_MANIFEST = "io.moderne.prethink.contextManifest";
+
     private Prethink() {
     }
+
+    /**
+     * The recipe requesting the second cycle, in which the Prethink recipes fill their placeholders
+     * from the data tables populated in the first, for a recipe to include in its recipe list.
+     */
+    public static Recipe fillCycle() {
+        return new RequestFillCycle();
+    }
 }
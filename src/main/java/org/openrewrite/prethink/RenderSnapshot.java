@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.openrewrite.*;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.text.PlainText;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
+
+/**
+ * Renders the context of a project from a {@link DataTableSnapshot} of the data tables of an
+ * earlier run, without parsing the project or discovering its data tables.
+ * <pre>
+ * DataTableSnapshot.write(DataTableExecutionContextView.view(ctx).getDataTableStore(), snapshot);
+ * // later, after changing how the context is rendered
+ * RenderSnapshot.render(snapshot, projectDir, new UpdatePrethinkContext(null, null, "200k tokens"));
+ * </pre>
+ * The rendering recipe runs over only the files it may read or write: those already in
+ * {@code .moderne/context/}, the agent configuration files and {@code .gitignore}, read as plain
+ * text. Its results are written back to the project.
+ */
+public final class RenderSnapshot {
+
+    private RenderSnapshot() {
+    }
+
+    /**
+     * Run {@code recipe} over the context files of {@code projectDir} with the data tables of the
+     * snapshot, write its results to the project and return them.
+     */
+    public static List<Result> render(Path snapshot, Path projectDir, Recipe recipe) throws IOException {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx).setDataTableStore(DataTableSnapshot.read(snapshot));
+
+        List<SourceFile> sources = new ArrayList<>();
+        Path contextDir = projectDir.resolve(CONTEXT_DIR);
+        if (Files.isDirectory(contextDir)) {
+            try (Stream<Path> files = Files.walk(contextDir)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    sources.add(plainText(projectDir, file));
+                }
+            }
+        }
+        List<String> otherFiles = new ArrayList<>(UpdateAgentConfig.AGENT_CONFIG_FILES);
+        otherFiles.add(".gitignore");
+        for (String otherFile : otherFiles) {
+            Path file = projectDir.resolve(otherFile);
+            if (Files.isRegularFile(file)) {
+                sources.add(plainText(projectDir, file));
+            }
+        }
+
+        RecipeRun run = recipe.run(new InMemoryLargeSourceSet(sources), ctx, 3, 1);
+        List<Result> results = run.getChangeset().getAllResults();
+        for (Result result : results) {
+            if (result.getBefore() != null &&
+                (result.getAfter() == null || !result.getAfter().getSourcePath().equals(result.getBefore().getSourcePath()))) {
+                Files.deleteIfExists(projectDir.resolve(result.getBefore().getSourcePath()));
+            }
+            if (result.getAfter() != null) {
+                Path file = projectDir.resolve(result.getAfter().getSourcePath());
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                Files.write(file, result.getAfter().printAll().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return results;
+    }
+
+    private static PlainText plainText(Path projectDir, Path file) throws IOException {
+        return PlainText.builder()
+                .sourcePath(projectDir.relativize(file))
+                .text(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.prethink.calm.GenerateCalmArchitecture;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
+import static org.openrewrite.prethink.Prethink.RENDERED_CALM;
+import static org.openrewrite.prethink.Prethink.RENDERED_CONTEXT;
+
+/**
+ * The context files rendered during the current run, published on the {@link ExecutionContext}
+ * under {@link Prethink#RENDERED_CONTEXT}.
+ * <p>
+ * Sibling recipes otherwise learn about context files by scanning the LST, which in cycle 2 still
+ * holds the cycle-1 placeholders: the placeholders are only filled in the edit phase, after every
+ * recipe has scanned. {@link ExportContext} and
+ * {@link GenerateCalmArchitecture} render in cycle 2's generate phase instead, which runs ahead of every edit, so {@link UpdateAgentConfig} and
+ * {@link UpdateGitignore} can finish their work in cycle 2 as well rather than requiring a third
+ * cycle. The CALM architecture, published by a recipe outside this package under
+ * {@link Prethink#RENDERED_CALM}, is recorded here when the rendered context is first looked up
+ * after it.
+ */
+final class RenderedContext {
+
+    private final Map<String, UpdateAgentConfig.ContextEntry> entriesByFile = new ConcurrentHashMap<>();
+    private final Set<String> removedFiles = ConcurrentHashMap.newKeySet();
+    private final Map<String, ContextManifest.Entry> filesByPath = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<GenerateCalmArchitecture.@Nullable Rendering> recordedCalm = new AtomicReference<>();
+
+    @Nullable
+    private volatile String calmSummary;
+
+    static RenderedContext publishTo(ExecutionContext ctx) {
+        return ctx.computeMessageIfAbsent(RENDERED_CONTEXT, k -> new RenderedContext());
+    }
+
+    static @Nullable RenderedContext find(ExecutionContext ctx) {
+        GenerateCalmArchitecture.Rendering calm = ctx.getMessage(RENDERED_CALM);
+        if (calm != null) {
+            publishTo(ctx).calm(calm);
+        }
+        return ctx.getMessage(RENDERED_CONTEXT);
+    }
+
+    /**
+     * Record the markdown description file of a context, or its removal when {@code markdown} is
+     * {@code null} because none of the context's tables produced rows.
+     */
+    void markdown(UpdateAgentConfig.ContextEntry entry, @Nullable String markdown) {
+        String contextFile = entry.getContextFile();
+        if (markdown == null) {
+            entriesByFile.remove(contextFile);
+            removedFiles.add(contextFile);
+            filesByPath.remove(contextFile);
+        } else {
+            removedFiles.remove(contextFile);
+            entriesByFile.put(contextFile, entry);
+            filesByPath.put(contextFile, ContextManifest.entry(contextFile, null, null, null, markdown, null));
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Record a CSV rendered from the data table {@code tableFqn} for the context described by
+     * {@code contextFile}, which has data rows beyond its header, along with the fingerprint of
+     * the rows it was rendered from, if any.
+     */
+    void table(String file, String contextFile, String tableFqn, long rows, String csv, @Nullable String fingerprint) {
+        filesByPath.put(file, ContextManifest.entry(file, contextFile, tableFqn, rows, csv, fingerprint));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Record a file that was left as the previous render wrote it, by its entry in the previous
+     * manifest, since it would have rendered the same.
+     */
+    void unchanged(ContextManifest.Entry entry) {
+        filesByPath.put(entry.getFile(), entry);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Record any other rendered context file.
+     */
+    void file(String file, String content) {
+        filesByPath.put(file, ContextManifest.entry(file, null, null, null, content, null));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Record the CALM architecture and its summary, once for each time it is rendered however
+     * often it is looked up.
+     */
+    private void calm(GenerateCalmArchitecture.Rendering calm) {
+        if (recordedCalm.getAndSet(calm) != calm) {
+            file(CONTEXT_DIR.resolve(GenerateCalmArchitecture.CALM_FILENAME).toString(), calm.getJson());
+            calmSummary = calm.getSummary();
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Whether any CSV rendered in this run has data rows beyond its header.
+     */
+    boolean hasDataRows() {
+        for (ContextManifest.Entry file : filesByPath.values()) {
+            if (file.getTable() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every context file rendered in this run, ordered by file.
+     */
+    List<ContextManifest.Entry> getFiles() {
+        List<ContextManifest.Entry> files = new ArrayList<>(filesByPath.values());
+        files.sort(Comparator.comparing(ContextManifest.Entry::getFile));
+        return files;
+    }
+
+    /**
+     * The rendered CSVs that have data rows, ordered by file.
+     */
+    List<ContextManifest.Entry> getTables() {
+        return tables(getFiles());
+    }
+
+    /**
+     * The files among {@code files} that were exported from a data table.
+     */
+    static List<ContextManifest.Entry> tables(List<ContextManifest.Entry> files) {
+        List<ContextManifest.Entry> tables = new ArrayList<>(files.size());
+        for (ContextManifest.Entry file : files) {
+            if (file.getTable() != null) {
+                tables.add(file);
+            }
+        }
+        return tables;
+    }
+
+    @Nullable String getCalmSummary() {
+        return calmSummary;
+    }
+
+    /**
+     * Incremented on every change, so consumers can cache what they derive from this.
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Overlay the rendered markdown onto the entries scanned from the LST: rendered entries
+     * replace scanned ones for the same file, and removed files drop out.
+     */
+    List<UpdateAgentConfig.ContextEntry> overlay(List<UpdateAgentConfig.ContextEntry> scanned) {
+        Map<String, UpdateAgentConfig.ContextEntry> byFile = new LinkedHashMap<>();
+        for (UpdateAgentConfig.ContextEntry entry : scanned) {
+            if (!removedFiles.contains(entry.getContextFile())) {
+                byFile.put(entry.getContextFile(), entry);
+            }
+        }
+        byFile.putAll(entriesByFile);
+        List<UpdateAgentConfig.ContextEntry> entries = new ArrayList<>(byFile.values());
+        entries.sort(Comparator.comparing(UpdateAgentConfig.ContextEntry::getContextFile));
+        return entries;
+    }
+
+    /**
+     * The UTF-8 encoded length of {@code text}, computed without encoding it.
+     */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() &&
+                       Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
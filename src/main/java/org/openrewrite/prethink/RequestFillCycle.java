@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+
+/**
+ * Requests the second cycle in which the Prethink recipes read the data tables populated in
+ * cycle 1, and nothing after it.
+ * <p>
+ * The scheduler runs another cycle when a recipe that changed something, or put a message on the
+ * {@link ExecutionContext}, causes another cycle. This recipe is the only one of them that does,
+ * and it only puts {@link Prethink#CYCLE_TRIGGER} in cycle 1. The recipes that fill their
+ * placeholders in cycle 2 include it in their recipe list and don't cause another cycle
+ * themselves, so a run converges after its fill pass without any state kept on a recipe
+ * instance, which may be shared between runs.
+ * <p>
+ * It is scheduling plumbing rather than a recipe to run on its own, so it is not public;
+ * recipes outside this package include it through {@link Prethink#fillCycle()}.
+ */
+@Value
+@EqualsAndHashCode(callSuper = false)
+class RequestFillCycle extends Recipe {
+
+    String displayName = "Request the Prethink fill cycle";
+
+    String description = "Request a second cycle, in which the Prethink recipes fill the context files from the data " +
+            "tables populated in the first.";
+
+    @Override
+    public boolean causesAnotherCycle() {
+        return true;
+    }
+
+    @Override
+    public TreeVisitor<?, ExecutionContext> getVisitor() {
+        return new TreeVisitor<Tree, ExecutionContext>() {
+            @Override
+            public @Nullable Tree visit(@Nullable Tree tree, ExecutionContext ctx) {
+                if (ctx.getCycle() == 1) {
+                    ctx.putMessage(Prethink.CYCLE_TRIGGER, true);
+                }
+                return tree;
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Predicates on the columns of data table rows, each written as a column, an operator and a
+ * pattern:
+ * <ul>
+ *     <li>{@code Source path!=**}{@code /src/test/**} keeps rows whose value does not match a glob</li>
+ *     <li>{@code Class name=com.acme.core.*} keeps rows whose value matches a glob</li>
+ *     <li>{@code Class name~^com\.acme\.(core|api)\.} keeps rows whose value contains a regex match</li>
+ *     <li>{@code Class name!~Test$} keeps rows whose value contains no regex match</li>
+ * </ul>
+ * A column is named by its display name, ignoring case, or by its field name. In a glob, {@code *}
+ * matches anything but a {@code /}, {@code **} matches anything and {@code ?} matches one character,
+ * while a leading {@code **}{@code /} matches any number of directories, none included, so that a
+ * glob matches paths in nested modules as well as at the root.
+ * A row is kept when it passes every predicate on a column its table has; predicates on columns a
+ * table lacks don't apply to it, so one filter can serve every table of a context.
+ * <p>
+ * Patterns are compiled once, and a row is tested on the raw values of the filtered columns only,
+ * before any of its columns are converted to strings for rendering.
+ */
+final class RowFilter {
+
+    private final List<Predicate> predicates;
+
+    private RowFilter(List<Predicate> predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * Compile the given predicates, returning {@code null} when there are none.
+     *
+     * @throws IllegalArgumentException when a predicate is malformed
+     */
+    static @Nullable RowFilter compile(@Nullable List<String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        List<Predicate> predicates = new ArrayList<>(filters.size());
+        for (String filter : filters) {
+            predicates.add(Predicate.parse(filter));
+        }
+        return new RowFilter(predicates);
+    }
+
+    /**
+     * The predicates of this filter that apply to a table with the given {@code @Column} fields.
+     */
+    Bound bind(List<Field> columnFields) {
+        List<Predicate> applicable = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        for (Predicate predicate : predicates) {
+            for (Field field : columnFields) {
+                if (predicate.appliesTo(field)) {
+                    field.setAccessible(true);
+                    applicable.add(predicate);
+                    fields.add(field);
+                    break;
+                }
+            }
+        }
+        return new Bound(applicable, fields);
+    }
+
+    /**
+     * A filter bound to the columns of one table.
+     */
+    static final class Bound {
+        private final List<Predicate> predicates;
+        private final List<Field> fields;
+
+        private Bound(List<Predicate> predicates, List<Field> fields) {
+            this.predicates = predicates;
+            this.fields = fields;
+        }
+
+        boolean test(Object row) {
+            for (int i = 0; i < predicates.size(); i++) {
+                Object value;
+                try {
+                    value = fields.get(i).get(row);
+                } catch (IllegalAccessException e) {
+                    value = null;
+                }
+                if (!predicates.get(i).test(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The predicates that apply, as written, for documenting the export.
+         */
+        List<String> describe() {
+            List<String> descriptions = new ArrayList<>(predicates.size());
+            for (Predicate predicate : predicates) {
+                descriptions.add(predicate.source);
+            }
+            return Collections.unmodifiableList(descriptions);
+        }
+    }
+
+    private static final class Predicate {
+        final String source;
+        final String column;
+        final Pattern pattern;
+        final boolean regex;
+        final boolean negated;
+
+        private Predicate(String source, String column, Pattern pattern, boolean regex, boolean negated) {
+            this.source = source;
+            this.column = column;
+            this.pattern = pattern;
+            this.regex = regex;
+            this.negated = negated;
+        }
+
+        static Predicate parse(String filter) {
+            // The first operator wins, so that patterns may themselves contain '=' or '~'.
+            for (int i = 0; i < filter.length(); i++) {
+                char c = filter.charAt(i);
+                if (c != '=' && c != '~') {
+                    continue;
+                }
+                boolean negated = i > 0 && filter.charAt(i - 1) == '!';
+                String column = filter.substring(0, negated ? i - 1 : i).trim();
+                String pattern = filter.substring(i + 1);
+                if (column.isEmpty()) {
+                    break;
+                }
+                try {
+                    return c == '~' ?
+                            new Predicate(filter, column, Pattern.compile(pattern), true, negated) :
+                            new Predicate(filter, column, globToRegex(pattern), false, negated);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid row filter '" + filter + "': " + e.getDescription(), e);
+                }
+            }
+            throw new IllegalArgumentException("Invalid row filter '" + filter +
+                                               "', expected e.g. 'Source path!=**/src/test/**' or 'Class name~^com\\.acme\\.'");
+        }
+
+        boolean appliesTo(Field field) {
+            return field.getName().equals(column) ||
+                   field.getAnnotation(Column.class).displayName().equalsIgnoreCase(column);
+        }
+
+        boolean test(@Nullable Object value) {
+            // Only the filtered column is converted, and only when it isn't a string already.
+            CharSequence text = value == null ? "" : value instanceof CharSequence ? (CharSequence) value : value.toString();
+            boolean matches = regex ? pattern.matcher(text).find() : pattern.matcher(text).matches();
+            return matches != negated;
+        }
+
+        private static Pattern globToRegex(String glob) {
+            StringBuilder regex = new StringBuilder(glob.length() + 8);
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    if (c == '?') {
+                        regex.append('.');
+                    } else if (i + 2 < glob.length() && glob.charAt(i + 1) == '*' && glob.charAt(i + 2) == '/') {
+                        regex.append("(?:.*/)?");
+                        i += 2;
+                    } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The 128-bit fingerprints of the rows of a table seen so far, so that {@link ExportContext} can
+ * drop a row identical to an earlier one as the rows stream out of the store, without sorting them
+ * or holding on to any row.
+ * <p>
+ * Fingerprints are kept in an open-addressing hash set of primitive longs, two per fingerprint.
+ * Rows are compared by fingerprint alone, which is what lets them go: should two different rows
+ * ever share one, the later is dropped as a duplicate. The hash isn't cryptographic, so rows
+ * crafted to collide would, but by chance it is very unlikely at 128 bits for tables of the sizes
+ * exported here.
+ */
+final class RowFingerprints {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The high and low halves of each slot's fingerprint, adjacent. An all-zero slot is empty.
+     */
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+    private int size;
+
+    private final Hashing.Hash128 hash = new Hashing.Hash128();
+
+    /**
+     * Add the fingerprint of a row with the given values, returning {@code false} when an
+     * identical row was added before.
+     */
+    boolean add(@Nullable Object[] values) {
+        hash.reset();
+        for (Object value : values) {
+            hash.append(value == null ? null : value.toString());
+        }
+        long high = hash.high();
+        long low = hash.low();
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        return add(high, low);
+    }
+
+    private boolean add(long high, long low) {
+        int mask = slots.length / 2 - 1;
+        for (int slot = (int) high & mask; ; slot = (slot + 1) & mask) {
+            long slotHigh = slots[slot * 2];
+            long slotLow = slots[slot * 2 + 1];
+            if (slotHigh == 0 && slotLow == 0) {
+                slots[slot * 2] = high;
+                slots[slot * 2 + 1] = low;
+                if (++size * 2 > slots.length / 2) {
+                    grow();
+                }
+                return true;
+            } else if (slotHigh == high && slotLow == low) {
+                return false;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        size = 0;
+        for (int slot = 0; slot < old.length; slot += 2) {
+            if (old[slot] != 0 || old[slot + 1] != 0) {
+                add(old[slot], old[slot + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * How {@link ExportContext} samples the rows of a table, written as the most rows to keep with an
+ * optional column to stratify by, e.g. {@code 500} or {@code 500 by Class name}.
+ * <p>
+ * Rows are sampled in one pass as they stream out of the store, with reservoir sampling, holding
+ * no more than the sampled rows. Without a column, every row is equally likely to be kept. With
+ * one, the rows are shared out between the values of that column as evenly as they allow: a value
+ * with few rows keeps them all, and the rest split what remains, each keeping a uniform sample of
+ * its own rows. A table without the column is sampled uniformly. The random choices are seeded,
+ * so the same rows always yield the same sample.
+ */
+final class Sampling {
+
+    private static final long SEED = 0x5eedc0deL;
+
+    private final String source;
+    private final int size;
+
+    @Nullable
+    private final String column;
+
+    private Sampling(String source, int size, @Nullable String column) {
+        this.source = source;
+        this.size = size;
+        this.column = column;
+    }
+
+    /**
+     * Parse a sampling, returning {@code null} when none is given.
+     *
+     * @throws IllegalArgumentException when the sampling is malformed
+     */
+    static @Nullable Sampling parse(@Nullable String sample) {
+        if (sample == null || sample.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = sample.trim().split("\\s+by\\s+", 2);
+        int size;
+        try {
+            size = Integer.parseInt(parts[0].trim());
+        } catch (NumberFormatException e) {
+            size = -1;
+        }
+        if (size <= 0 || parts.length == 2 && parts[1].trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid sample '" + sample +
+                                               "', expected a positive number of rows optionally followed by a column, e.g. '500 by Class name'");
+        }
+        return new Sampling(sample.trim(), size, parts.length == 2 ? parts[1].trim() : null);
+    }
+
+    /**
+     * A reservoir for the rows of a table with the given {@code @Column} fields, stratified by the
+     * sampling column when the table has it.
+     */
+    Reservoir reservoir(List<Field> columnFields) {
+        if (column != null) {
+            for (Field field : columnFields) {
+                if (field.getName().equals(column) ||
+                    field.getAnnotation(Column.class).displayName().equalsIgnoreCase(column)) {
+                    field.setAccessible(true);
+                    return new Reservoir(size, field);
+                }
+            }
+        }
+        return new Reservoir(size, null);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * The rows of one table sampled so far.
+     */
+    static final class Reservoir {
+        private final int size;
+
+        @Nullable
+        private final Field stratumField;
+
+        private final Random random = new Random(SEED);
+        private final Map<String, Stratum> strata = new HashMap<>();
+
+        /**
+         * Strata holding rows, the one holding the most first, so that a full reservoir makes room
+         * by evicting from it.
+         */
+        private final TreeSet<Stratum> bySize = new TreeSet<>(
+                Comparator.comparingInt((Stratum s) -> s.rows.size()).reversed().thenComparingInt(s -> s.index));
+
+        private long offered;
+        private int kept;
+
+        private Reservoir(int size, @Nullable Field stratumField) {
+            this.size = size;
+            this.stratumField = stratumField;
+        }
+
+        /**
+         * The column the rows are stratified by, or {@code null} when they are sampled uniformly.
+         */
+        @Nullable String getStratumColumn() {
+            return stratumField == null ? null : stratumField.getAnnotation(Column.class).displayName();
+        }
+
+        long getOffered() {
+            return offered;
+        }
+
+        void offer(Object row) {
+            Stratum stratum = strata.computeIfAbsent(stratum(row), k -> new Stratum(strata.size()));
+            long ordinal = offered++;
+            stratum.seen++;
+            if (stratum.seen > stratum.rows.size() + 1) {
+                // The stratum already gave up rows, so it stays at its share, replacing one of its
+                // rows with the probability that keeps its sample uniform.
+                long slot = (long) (random.nextDouble() * stratum.seen);
+                if (slot < stratum.rows.size()) {
+                    stratum.rows.set((int) slot, new Sampled(ordinal, row));
+                }
+                return;
+            }
+
+            bySize.remove(stratum);
+            stratum.rows.add(new Sampled(ordinal, row));
+            bySize.add(stratum);
+            if (++kept > size) {
+                // Evict a random row of the stratum holding the most, evening out the shares.
+                Stratum largest = bySize.pollFirst();
+                List<Sampled> rows = largest.rows;
+                int evicted = random.nextInt(rows.size());
+                rows.set(evicted, rows.get(rows.size() - 1));
+                rows.remove(rows.size() - 1);
+                if (!rows.isEmpty()) {
+                    bySize.add(largest);
+                }
+                kept--;
+            }
+        }
+
+        /**
+         * The sampled rows, in the order they were offered.
+         */
+        List<Object> rows() {
+            List<Sampled> sampled = new ArrayList<>(kept);
+            for (Stratum stratum : strata.values()) {
+                sampled.addAll(stratum.rows);
+            }
+            sampled.sort(Comparator.comparingLong(s -> s.ordinal));
+            List<Object> rows = new ArrayList<>(sampled.size());
+            for (Sampled s : sampled) {
+                rows.add(s.row);
+            }
+            return rows;
+        }
+
+        private String stratum(Object row) {
+            if (stratumField == null) {
+                return "";
+            }
+            try {
+                Object value = stratumField.get(row);
+                return value == null ? "" : value.toString();
+            } catch (IllegalAccessException e) {
+                return "";
+            }
+        }
+    }
+
+    private static final class Stratum {
+        final int index;
+        final List<Sampled> rows = new ArrayList<>();
+        long seen;
+
+        Stratum(int index) {
+            this.index = index;
+        }
+    }
+
+    private static final class Sampled {
+        final long ordinal;
+        final Object row;
+
+        Sampled(long ordinal, Object row) {
+            this.ordinal = ordinal;
+            this.row = row;
+        }
+    }
+}
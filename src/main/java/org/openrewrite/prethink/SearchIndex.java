@@ -0,0 +1,391 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Column;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A full-text index over the descriptive columns of an exported table, written by
+ * {@link ExportContext} next to the table as {@code <table>.idx}, that answers top-k searches
+ * ranked by BM25 without reading the table itself.
+ * <pre>{@code
+ * SearchIndex index = SearchIndex.read(Paths.get(".moderne/context/class-descriptions.idx"));
+ * for (SearchIndex.Hit hit : index.search("retry backoff", 10)) {
+ *     System.out.println(hit.getLabel() + " " + hit.getScore());
+ * }
+ * }</pre>
+ * The index is a text file: a {@code rows} line, then the token length and label of every row,
+ * then a {@code terms} line and one line per term, sorted, with its posting list. Postings are the
+ * gaps between the ordinals of the rows containing the term, each followed by {@code :tf} when
+ * the term occurs more than once in that row.
+ * <p>
+ * Text is split into lower-cased words at non-alphanumeric characters and camel case humps, and
+ * plurals are folded into their singular, so that a search for {@code retries} finds rows that
+ * mention {@code retry} or {@code RetryTemplate}.
+ */
+public final class SearchIndex {
+
+    public static final String EXTENSION = ".idx";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final int[] lengths;
+    private final String[] labels;
+    private final double averageLength;
+
+    /**
+     * The encoded posting list of every term, decoded only when a search asks for the term.
+     */
+    private final Map<String, String> postings;
+
+    private SearchIndex(int[] lengths, String[] labels, Map<String, String> postings) {
+        this.lengths = lengths;
+        this.labels = labels;
+        this.postings = postings;
+        long total = 0;
+        for (int length : lengths) {
+            total += length;
+        }
+        this.averageLength = lengths.length == 0 ? 0 : (double) total / lengths.length;
+    }
+
+    public static SearchIndex read(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the text is not a search index
+     */
+    public static SearchIndex parse(String text) {
+        String[] lines = text.split("\n");
+        int line = 0;
+        while (line < lines.length && lines[line].startsWith("#")) {
+            line++;
+        }
+        int rows = count(lines, line++, "rows");
+        if (line + rows > lines.length) {
+            throw new IllegalArgumentException("Search index ends within its rows");
+        }
+        int[] lengths = new int[rows];
+        String[] labels = new String[rows];
+        for (int row = 0; row < rows; row++, line++) {
+            int space = lines[line].indexOf(' ');
+            lengths[row] = Integer.parseInt(space < 0 ? lines[line] : lines[line].substring(0, space));
+            labels[row] = space < 0 ? "" : lines[line].substring(space + 1);
+        }
+        int terms = count(lines, line++, "terms");
+        Map<String, String> postings = new HashMap<>(terms * 2);
+        for (; line < lines.length; line++) {
+            int tab = lines[line].indexOf('\t');
+            if (tab > 0) {
+                postings.put(lines[line].substring(0, tab), lines[line].substring(tab + 1));
+            }
+        }
+        return new SearchIndex(lengths, labels, postings);
+    }
+
+    private static int count(String[] lines, int line, String section) {
+        if (line >= lines.length || !lines[line].startsWith(section + " ")) {
+            throw new IllegalArgumentException("Search index is missing its " + section);
+        }
+        return Integer.parseInt(lines[line].substring(section.length() + 1).trim());
+    }
+
+    /**
+     * The number of indexed rows.
+     */
+    public int getRows() {
+        return lengths.length;
+    }
+
+    /**
+     * The {@code k} rows that best match the words of {@code query}, best first. Rows matching
+     * none of its words are never returned.
+     */
+    public List<Hit> search(String query, int k) {
+        double[] scores = new double[lengths.length];
+        boolean[] matched = new boolean[lengths.length];
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            String encoded = postings.get(term);
+            if (encoded == null) {
+                continue;
+            }
+            String[] entries = encoded.split(" ");
+            double idf = Math.log(1 + (lengths.length - entries.length + 0.5) / (entries.length + 0.5));
+            int row = -1;
+            for (String entry : entries) {
+                int colon = entry.indexOf(':');
+                row += Integer.parseInt(colon < 0 ? entry : entry.substring(0, colon));
+                int tf = colon < 0 ? 1 : Integer.parseInt(entry.substring(colon + 1));
+                double norm = K1 * (1 - B + B * lengths[row] / averageLength);
+                scores[row] += idf * tf * (K1 + 1) / (tf + norm);
+                matched[row] = true;
+            }
+        }
+
+        // A min-heap of the best k rows so far, ties broken towards the earlier row.
+        Comparator<Integer> byScore = Comparator.<Integer>comparingDouble(row -> scores[row])
+                .thenComparing(Comparator.<Integer>naturalOrder().reversed());
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(k, 1), byScore);
+        for (int row = 0; row < scores.length && k > 0; row++) {
+            if (!matched[row]) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(row);
+            } else if (byScore.compare(row, best.peek()) > 0) {
+                best.poll();
+                best.add(row);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int row = best.poll();
+            hits.add(new Hit(row, labels[row], scores[row]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    @Value
+    public static class Hit {
+        /**
+         * The ordinal of the row among the data rows of the table file, from 0.
+         */
+        int row;
+
+        /**
+         * The class name of the row, with its signature where the table has one, or else the
+         * value of its first column.
+         */
+        String label;
+
+        double score;
+    }
+
+    static List<String> tokenize(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean alphanumeric = Character.isLetterOrDigit(c);
+            // A camel case hump starts a word, as in "retryTemplate" or "HTTPClient".
+            boolean hump = start >= 0 && alphanumeric && Character.isUpperCase(c) &&
+                           (Character.isLowerCase(text.charAt(i - 1)) ||
+                            i + 1 < text.length() && Character.isLowerCase(text.charAt(i + 1)) &&
+                            Character.isUpperCase(text.charAt(i - 1)));
+            if (start >= 0 && (!alphanumeric || hump)) {
+                String token = stem(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT));
+                if (token.length() > 1) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+            if (alphanumeric && start < 0) {
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Fold plurals into their singular, after Harman's "S" stemmer.
+     */
+    private static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("sses")) {
+            return word.substring(0, word.length() - 2);
+        } else if (word.length() > 3 && word.endsWith("ies") && !word.endsWith("eies") && !word.endsWith("aies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        } else if (word.length() > 3 && word.endsWith("es") &&
+                   !word.endsWith("aes") && !word.endsWith("ees") && !word.endsWith("oes")) {
+            return word.substring(0, word.length() - 1);
+        } else if (word.length() > 3 && word.endsWith("s") && !word.endsWith("us") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    /**
+     * Collects the postings of a table's rows as they stream out of the store.
+     */
+    static final class Builder {
+        private final List<Field> searchFields;
+        private final List<Field> labelFields;
+        private final Map<String, int[]> postingsByTerm = new HashMap<>();
+        private final Map<String, Integer> sizes = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+        private int[] lengths = new int[64];
+        private int @Nullable [] keptRows;
+
+        private Builder(List<Field> searchFields, List<Field> labelFields) {
+            this.searchFields = searchFields;
+            this.labelFields = labelFields;
+        }
+
+        /**
+         * A builder indexing the {@code searchColumns} a table with the given {@code @Column}
+         * fields has, or {@code null} when it has none of them.
+         */
+        static @Nullable Builder forColumns(@Nullable List<String> searchColumns, List<Field> columnFields) {
+            if (searchColumns == null || searchColumns.isEmpty() || columnFields.isEmpty()) {
+                return null;
+            }
+            List<Field> searchFields = new ArrayList<>();
+            List<Field> labelFields = new ArrayList<>();
+            for (Field field : columnFields) {
+                String displayName = field.getAnnotation(Column.class).displayName();
+                for (String column : searchColumns) {
+                    if (field.getName().equals(column) || displayName.equalsIgnoreCase(column)) {
+                        field.setAccessible(true);
+                        searchFields.add(field);
+                        break;
+                    }
+                }
+                if ("className".equals(field.getName()) || "signature".equals(field.getName())) {
+                    field.setAccessible(true);
+                    labelFields.add(field);
+                }
+            }
+            if (labelFields.isEmpty()) {
+                columnFields.get(0).setAccessible(true);
+                labelFields.add(columnFields.get(0));
+            }
+            return searchFields.isEmpty() ? null : new Builder(searchFields, labelFields);
+        }
+
+        /**
+         * Index the next exported row.
+         */
+        void add(Object row) {
+            int ordinal = labels.size();
+            Map<String, Integer> termFrequencies = new LinkedHashMap<>();
+            int length = 0;
+            for (Field field : searchFields) {
+                Object value = get(field, row);
+                if (value != null) {
+                    for (String token : tokenize(value.toString())) {
+                        termFrequencies.merge(token, 1, Integer::sum);
+                        length++;
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> tf : termFrequencies.entrySet()) {
+                int size = sizes.getOrDefault(tf.getKey(), 0);
+                int[] postings = postingsByTerm.get(tf.getKey());
+                if (postings == null) {
+                    postings = new int[4];
+                } else if (size + 2 > postings.length) {
+                    postings = Arrays.copyOf(postings, postings.length * 2);
+                }
+                postings[size] = ordinal;
+                postings[size + 1] = tf.getValue();
+                postingsByTerm.put(tf.getKey(), postings);
+                sizes.put(tf.getKey(), size + 2);
+            }
+
+            StringBuilder label = new StringBuilder();
+            for (Field field : labelFields) {
+                Object value = get(field, row);
+                if (value != null) {
+                    label.append(label.length() == 0 ? "" : " ").append(value);
+                }
+            }
+            labels.add(label.toString().replaceAll("\\s+", " "));
+            if (ordinal == lengths.length) {
+                lengths = Arrays.copyOf(lengths, ordinal * 2);
+            }
+            lengths[ordinal] = length;
+        }
+
+        private static @Nullable Object get(Field field, Object row) {
+            try {
+                return field.get(row);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Index only the given rows, by their ascending ordinals among the rows that were added,
+         * as when the table was pruned to fit a budget.
+         */
+        void retain(int[] keptRows) {
+            this.keptRows = keptRows;
+        }
+
+        String write(String title) {
+            int[] keptRows = this.keptRows;
+            int rows = labels.size();
+            int[] newOrdinal = new int[rows];
+            if (keptRows == null) {
+                for (int row = 0; row < rows; row++) {
+                    newOrdinal[row] = row;
+                }
+            } else {
+                Arrays.fill(newOrdinal, -1);
+                for (int i = 0; i < keptRows.length; i++) {
+                    newOrdinal[keptRows[i]] = i;
+                }
+            }
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("# ").append(title).append('\n');
+            sb.append("# Query with ").append(SearchIndex.class.getName()).append('\n');
+            sb.append("rows ").append(keptRows == null ? rows : keptRows.length).append('\n');
+            for (int row = 0; row < rows; row++) {
+                if (newOrdinal[row] >= 0) {
+                    sb.append(lengths[row]).append(' ').append(labels.get(row)).append('\n');
+                }
+            }
+
+            StringBuilder terms = new StringBuilder();
+            int termCount = 0;
+            for (String term : new TreeSet<>(postingsByTerm.keySet())) {
+                int[] postings = postingsByTerm.get(term);
+                int size = sizes.get(term);
+                int previous = -1;
+                int start = terms.length();
+                for (int i = 0; i < size; i += 2) {
+                    int ordinal = newOrdinal[postings[i]];
+                    if (ordinal < 0) {
+                        continue;
+                    }
+                    terms.append(previous < 0 ? term + "\t" : " ").append(ordinal - previous);
+                    if (postings[i + 1] > 1) {
+                        terms.append(':').append(postings[i + 1]);
+                    }
+                    previous = ordinal;
+                }
+                if (terms.length() > start) {
+                    terms.append('\n');
+                    termCount++;
+                }
+            }
+            sb.append("terms ").append(termCount).append('\n').append(terms);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A SQL script that loads the tables of one {@link ExportContext} into an embedded database, e.g.
+ * with {@code sqlite3 context.db < test-coverage.sql}, so that they can be queried and joined
+ * without reading every table file.
+ * <p>
+ * Each data table becomes a SQL table with a column per {@code @Column} field, typed after the
+ * field: {@code INTEGER} for integral and boolean fields, {@code REAL} for floating point ones,
+ * {@code NUMERIC} for big numbers and {@code TEXT} for everything else. Rows are inserted in
+ * batches of {@link #BATCH_SIZE}, all in one transaction, and the columns agents look rows up by
+ * are indexed once a table is loaded.
+ */
+final class SqlScript {
+
+    /**
+     * Rows per {@code INSERT} statement, within the compound select limit of older SQLite versions.
+     */
+    static final int BATCH_SIZE = 500;
+
+    private static final Set<String> INDEXED_COLUMNS = new HashSet<>(Arrays.asList("className", "entityId", "sourcePath"));
+
+    private final StringBuilder script = new StringBuilder();
+    private int tables;
+
+    SqlScript(String title, String filename) {
+        script.append("-- ").append(title).append('\n');
+        script.append("-- Load into SQLite with: sqlite3 context.db < ").append(filename).append("\n\n");
+        script.append("BEGIN TRANSACTION;\n\n");
+    }
+
+    /**
+     * Start a table with the given {@code @Column} fields. Its statements are only added to the
+     * script when it is {@link Table#end() ended}, so a table that turns out to have no rows can
+     * simply be dropped.
+     */
+    Table table(String name, List<Field> columnFields) {
+        return new Table(name, columnFields);
+    }
+
+    /**
+     * The SQL table name of a data table, e.g. {@code method_descriptions}.
+     */
+    static String tableName(String tableDirectory) {
+        return tableDirectory.replace('-', '_');
+    }
+
+    boolean isEmpty() {
+        return tables == 0;
+    }
+
+    /**
+     * The complete script, committing the transaction.
+     */
+    String finish() {
+        return script + "COMMIT;\n";
+    }
+
+    private static String sqlType(Class<?> type) {
+        if (type == int.class || type == long.class || type == short.class || type == byte.class ||
+            type == boolean.class || type == Integer.class || type == Long.class || type == Short.class ||
+            type == Byte.class || type == Boolean.class) {
+            return "INTEGER";
+        } else if (type == double.class || type == float.class || type == Double.class || type == Float.class) {
+            return "REAL";
+        } else if (type == BigDecimal.class || type == BigInteger.class) {
+            return "NUMERIC";
+        }
+        return "TEXT";
+    }
+
+    private static StringBuilder appendIdentifier(StringBuilder sql, String identifier) {
+        return sql.append('"').append(identifier.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void appendLiteral(StringBuilder sql, @Nullable Object value) {
+        if (value == null) {
+            sql.append("NULL");
+        } else if (value instanceof Boolean) {
+            sql.append((Boolean) value ? '1' : '0');
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+                   value instanceof Byte || value instanceof BigDecimal || value instanceof BigInteger) {
+            sql.append(value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            sql.append(Double.isFinite(d) ? String.valueOf(d) : "NULL");
+        } else {
+            String text = value.toString();
+            sql.append('\'');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                sql.append(c);
+                if (c == '\'') {
+                    sql.append('\'');
+                }
+            }
+            sql.append('\'');
+        }
+    }
+
+    /**
+     * The statements of one table, built up as its rows stream by.
+     */
+    final class Table {
+        private final String name;
+        private final List<Field> columnFields;
+        private final StringBuilder sql = new StringBuilder();
+        private long rows;
+
+        private Table(String name, List<Field> columnFields) {
+            this.name = name;
+            this.columnFields = columnFields;
+            sql.append("DROP TABLE IF EXISTS ");
+            appendIdentifier(sql, name).append(";\n");
+            sql.append("CREATE TABLE ");
+            appendIdentifier(sql, name).append(" (");
+            for (int i = 0; i < columnFields.size(); i++) {
+                Field field = columnFields.get(i);
+                appendIdentifier(sql.append(i == 0 ? "" : ", "), field.getName())
+                        .append(' ').append(sqlType(field.getType()));
+            }
+            sql.append(");\n");
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Insert a row, given the raw values of its columns in the order of the table's fields.
+         */
+        void insert(@Nullable Object[] values) {
+            if (rows % BATCH_SIZE == 0) {
+                if (rows > 0) {
+                    sql.append(";\n");
+                }
+                sql.append("INSERT INTO ");
+                appendIdentifier(sql, name).append(" VALUES\n");
+            } else {
+                sql.append(",\n");
+            }
+            sql.append('(');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                appendLiteral(sql, values[i]);
+            }
+            sql.append(')');
+            rows++;
+        }
+
+        /**
+         * Add this table to the script, indexing it after its rows are inserted, which is cheaper
+         * than maintaining the indexes through every insert.
+         */
+        void end() {
+            if (rows > 0) {
+                sql.append(";\n");
+            }
+            for (Field field : columnFields) {
+                if (INDEXED_COLUMNS.contains(field.getName())) {
+                    sql.append("CREATE INDEX ");
+                    appendIdentifier(sql, name + "_" + field.getName()).append(" ON ");
+                    appendIdentifier(sql, name).append(" (");
+                    appendIdentifier(sql, field.getName()).append(");\n");
+                }
+            }
+            script.append(sql).append('\n');
+            tables++;
+        }
+    }
+}
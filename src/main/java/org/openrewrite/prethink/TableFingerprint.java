@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025 the original author or authors.
+ * <p>
+ * Licensed under the Moderne Source Available License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://docs.moderne.io/licensing/moderne-source-available-license
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.prethink;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A 128-bit fingerprint of the rows of a table, in order, and of how they are rendered, so that
+ * {@link ExportContext} can tell that a table would render exactly as it did before without
+ * formatting it. The fingerprint is folded in as the rows stream out of the store, holding on to
+ * none of them.
+ * <p>
+ * Like {@link RowFingerprints}, it is a {@link Hashing.Hash128} of every value, which here runs on
+ * across rows, so that the same rows in another order have another fingerprint.
+ */
+final class TableFingerprint {
+
+    private final Hashing.Hash128 hash = new Hashing.Hash128();
+
+    /**
+     * Start a fingerprint of the rows rendered with the given configuration, which holds
+     * everything besides the rows that the rendered files depend on.
+     */
+    TableFingerprint(String configuration) {
+        hash.append(configuration);
+    }
+
+    void add(@Nullable Object[] values) {
+        for (Object value : values) {
+            hash.append(value == null ? null : value.toString());
+        }
+    }
+
+    /**
+     * The fingerprint of the rows added so far, as 32 hex digits.
+     */
+    @Override
+    public String toString() {
+        return hex(hash.high()) + hex(hash.low());
+    }
+
+    private static String hex(long half) {
+        String digits = Long.toHexString(half);
+        StringBuilder hex = new StringBuilder(16);
+        for (int i = digits.length(); i < 16; i++) {
+            hex.append('0');
+        }
+        return hex.append(digits).toString();
+    }
+}
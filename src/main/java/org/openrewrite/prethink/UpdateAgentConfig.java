@@ -31,13 +31,16 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.joining;
 import static org.openrewrite.PathUtils.separatorsToSystem;
 import static org.openrewrite.PathUtils.separatorsToUnix;
+import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
 
 /**
  * Recipe that updates coding agent configuration files (CLAUDE.md, .cursorrules, etc.)
@@ -49,15 +52,15 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
 
     transient ContextRegistry contextRegistry = new ContextRegistry(this);
 
-    private static final String CONTEXT_SECTION_MARKER = "<!-- prethink-context -->";
-    private static final String CONTEXT_TABLE_PLACEHOLDER = "{{CONTEXT_TABLE}}";
-    // Match the full context section including both markers
-    private static final Pattern CONTEXT_SECTION_PATTERN = Pattern.compile(
-            "<!-- prethink-context -->.*?<!-- /prethink-context -->",
-            Pattern.DOTALL
-    );
+    private static final String CONTEXT_SECTION_NAME = "prethink-context";
+    private static final String HASH_ATTRIBUTE = "hash";
+    // Hex digits of the SHA-256 input hash kept on the begin marker
+    private static final int HASH_LENGTH = 16;
+    private static final String CONTEXT_TABLE_PLACEHOLDER = "CONTEXT_TABLE";
+    private static final String CONTEXT_FILES_PLACEHOLDER = "CONTEXT_FILES";
+    private static final String CALM_SUMMARY_PLACEHOLDER = "CALM_SUMMARY";
 
-    private static final List<String> AGENT_CONFIG_FILES = Arrays.asList(
+    static final List<String> AGENT_CONFIG_FILES = Arrays.asList(
             "AGENTS.md",
             "CLAUDE.md",
             ".cursorrules",
@@ -74,24 +77,54 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
 
     @Option(displayName = "Template",
             description = "The template used to generate the context section. The `{{CONTEXT_TABLE}}` placeholder is " +
-                          "replaced with the generated context table. If not specified, a bundled default template is used.",
+                          "replaced with the generated context table, `{{CONTEXT_FILES}}` with a table of the exported " +
+                          "CSV files with their row counts, sizes and estimated tokens, and `{{CALM_SUMMARY}}` with " +
+                          "a one-line summary of the CALM architecture. If not specified, a bundled default template is used.",
             required = false,
             example = "## Available Context\n\n{{CONTEXT_TABLE}}")
     @Nullable
     String template;
 
+    /**
+     * The template compiled on first use, so it is loaded and parsed once per recipe instance
+     * rather than once per rendered config file.
+     */
+    transient AtomicReference<@Nullable ContextTemplate> compiledTemplate = new AtomicReference<>();
+
     String displayName = "Update agent configuration files";
 
     String description = "Update coding agent configuration files (CLAUDE.md, .cursorrules, etc.) " +
                "to include references to Moderne Prethink context files in .moderne/context/.";
 
+    /**
+     * Safe for concurrent scanners: both collections are concurrent, and entries are keyed by
+     * context file so the order they were scanned in never leaks into the output.
+     */
     @Value
     public static class Accumulator {
+        Map<String, ContextEntry> contextEntriesByFile;
+        Set<String> foundConfigFiles;
+
         /**
-         * Context entries found from markdown files in .moderne/context/
+         * The inputs of the last context section and, once rendered, the section itself, reused for
+         * every config file while the inputs are unchanged.
          */
-        List<ContextEntry> contextEntries;
-        Set<String> foundConfigFiles;
+        AtomicReference<@Nullable RenderedSection> renderedSection = new AtomicReference<>();
+
+        /**
+         * The files listed by a {@link ContextManifest} found in the repository, used when nothing
+         * was rendered alongside this recipe.
+         */
+        AtomicReference<List<ContextManifest.Entry>> manifestFiles = new AtomicReference<>(emptyList());
+
+        /**
+         * Context entries found from markdown files in .moderne/context/, ordered by context file.
+         */
+        public List<ContextEntry> getContextEntries() {
+            List<ContextEntry> entries = new ArrayList<>(contextEntriesByFile.values());
+            entries.sort(Comparator.comparing(ContextEntry::getContextFile));
+            return entries;
+        }
     }
 
     @Value
@@ -101,9 +134,43 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         String contextFile;
     }
 
+    @Value
+    static class RenderedSection {
+        List<ContextEntry> contextEntries;
+
+        @Nullable
+        RenderedContext renderedContext;
+
+        long renderedContextVersion;
+
+        /**
+         * The context files, from the {@link RenderedContext} or else the scanned manifest.
+         */
+        List<ContextManifest.Entry> files;
+
+        @Nullable
+        String calmSummary;
+
+        /**
+         * Hash of everything the section is rendered from, stamped on its begin marker.
+         */
+        String hash;
+
+        /**
+         * Rendered on first use, so config files whose section is already up to date never pay for it.
+         */
+        AtomicReference<@Nullable String> section = new AtomicReference<>();
+
+        boolean renderedFrom(List<ContextEntry> contextEntries, @Nullable RenderedContext renderedContext) {
+            return this.renderedContext == renderedContext &&
+                   (renderedContext == null || renderedContextVersion == renderedContext.getVersion()) &&
+                   this.contextEntries.equals(contextEntries);
+        }
+    }
+
     @Override
     public Accumulator getInitialValue(ExecutionContext ctx) {
-        return new Accumulator(new ArrayList<>(), new HashSet<>());
+        return new Accumulator(new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet());
     }
 
     @Override
@@ -115,17 +182,23 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
                     SourceFile sf = (SourceFile) tree;
                     String path = sf.getSourcePath().toString();
 
-                    // Track context markdown files and extract their info
-                    if (path.startsWith(separatorsToSystem(".moderne/context/")) && path.endsWith(".md")) {
+                    // Track context markdown files and extract their info. Markdown in
+                    // subdirectories, such as partition indexes, belongs to a context.
+                    if (CONTEXT_DIR.equals(sf.getSourcePath().getParent()) && path.endsWith(".md")) {
                         if (sf instanceof PlainText) {
                             PlainText pt = (PlainText) sf;
                             ContextEntry entry = parseContextMarkdown(pt.getText(), path);
                             if (entry != null) {
-                                acc.getContextEntries().add(entry);
+                                acc.getContextEntriesByFile().put(entry.getContextFile(), entry);
                             }
                         }
                     }
 
+                    // Track the context files listed in the context manifest
+                    if (sf.getSourcePath().equals(ContextManifest.MANIFEST_PATH) && sf instanceof PlainText) {
+                        acc.getManifestFiles().set(ContextManifest.parse(((PlainText) sf).getText()));
+                    }
+
                     // Track agent config files
                     String fileName = sf.getSourcePath().getFileName().toString();
                     if (isConfigFile(path, fileName)) {
@@ -137,19 +210,49 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         };
     }
 
+    /**
+     * Read the title (first {@code # } heading) and short description (the {@code ## } heading
+     * after it) of a context markdown file, stopping at that heading rather than splitting the
+     * whole file, which may embed large schemas, into lines.
+     * <p>
+     * A leading YAML front-matter block delimited by {@code ---} lines is skipped, and its
+     * {@code title} and {@code description} keys, when present, take the place of the headings.
+     */
     private @Nullable ContextEntry parseContextMarkdown(String content, String filePath) {
-        // Parse the markdown to extract displayName (title) and shortDescription (first subheading)
         String displayName = null;
         String shortDescription = null;
 
-        String[] lines = content.split("\n");
-        for (String line : lines) {
-            if (line.startsWith("# ") && displayName == null) {
-                displayName = line.substring(2).trim();
-            } else if (line.startsWith("## ") && displayName != null) {
-                shortDescription = line.substring(3).trim();
+        int lineStart = 0;
+        if (isFrontMatterDelimiter(content, 0, lineEnd(content, 0))) {
+            lineStart = lineEnd(content, 0) + 1;
+            while (lineStart < content.length()) {
+                int lineEnd = lineEnd(content, lineStart);
+                if (isFrontMatterDelimiter(content, lineStart, lineEnd)) {
+                    lineStart = lineEnd + 1;
+                    break;
+                }
+                int colon = content.indexOf(':', lineStart);
+                if (colon > 0 && colon < lineEnd) {
+                    String key = content.substring(lineStart, colon).trim();
+                    if ("title".equals(key)) {
+                        displayName = frontMatterValue(content.substring(colon + 1, lineEnd));
+                    } else if ("description".equals(key)) {
+                        shortDescription = frontMatterValue(content.substring(colon + 1, lineEnd));
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        while (lineStart < content.length() && (displayName == null || shortDescription == null)) {
+            int lineEnd = lineEnd(content, lineStart);
+            if (displayName == null && content.startsWith("# ", lineStart)) {
+                displayName = content.substring(lineStart + 2, lineEnd).trim();
+            } else if (displayName != null && content.startsWith("## ", lineStart)) {
+                shortDescription = content.substring(lineStart + 3, lineEnd).trim();
                 break;
             }
+            lineStart = lineEnd + 1;
         }
 
         if (displayName != null && shortDescription != null) {
@@ -158,21 +261,42 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         return null;
     }
 
+    private static int lineEnd(String content, int lineStart) {
+        int lineEnd = content.indexOf('\n', lineStart);
+        return lineEnd < 0 ? content.length() : lineEnd;
+    }
+
+    private static boolean isFrontMatterDelimiter(String content, int lineStart, int lineEnd) {
+        return content.startsWith("---", lineStart) && content.substring(lineStart + 3, lineEnd).trim().isEmpty();
+    }
+
+    private static @Nullable String frontMatterValue(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && (trimmed.charAt(0) == '"' || trimmed.charAt(0) == '\'') &&
+            trimmed.charAt(trimmed.length() - 1) == trimmed.charAt(0)) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
     @Override
     public Collection<? extends SourceFile> generate(Accumulator acc, ExecutionContext ctx) {
         List<SourceFile> generated = new ArrayList<>();
+        List<ContextEntry> contextEntries = contextEntries(acc, ctx);
 
         // Record context entries to the data table
-        for (ContextEntry entry : acc.getContextEntries()) {
+        List<ContextManifest.Entry> files = files(acc, RenderedContext.find(ctx));
+        for (ContextEntry entry : contextEntries) {
             contextRegistry.insertRow(ctx, new ContextRegistry.Row(
                     entry.getDisplayName(),
                     entry.getShortDescription(),
-                    entry.getContextFile()
+                    entry.getContextFile(),
+                    ContextManifest.contextTokens(files, entry.getContextFile())
             ));
         }
 
         // If no context entries found, nothing to do
-        if (acc.getContextEntries().isEmpty()) {
+        if (contextEntries.isEmpty()) {
             return generated;
         }
 
@@ -180,7 +304,7 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         if (targets.isEmpty()) {
             // No targets specified: create CLAUDE.md only when no config files exist at all
             if (acc.getFoundConfigFiles().isEmpty()) {
-                generated.add(newConfigFile("CLAUDE.md", acc));
+                generated.add(newConfigFile("CLAUDE.md", acc, contextEntries, ctx));
             }
         } else {
             // Targets specified: create each target that does not exist yet
@@ -188,7 +312,7 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
                 boolean exists = acc.getFoundConfigFiles().stream()
                         .anyMatch(path -> matchesTarget(path, target));
                 if (!exists) {
-                    generated.add(newConfigFile(target, acc));
+                    generated.add(newConfigFile(target, acc, contextEntries, ctx));
                 }
             }
         }
@@ -196,6 +320,23 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         return generated;
     }
 
+    /**
+     * The context entries scanned from the LST, overlaid with what {@link ExportContext} rendered
+     * earlier in this cycle. In cycle 2 the scan still sees the cycle-1 placeholder markdown, so
+     * without the overlay the agent config would lag one cycle behind the exported context.
+     */
+    private List<ContextEntry> contextEntries(Accumulator acc, ExecutionContext ctx) {
+        RenderedContext rendered = RenderedContext.find(ctx);
+        return rendered == null ? acc.getContextEntries() : rendered.overlay(acc.getContextEntries());
+    }
+
+    /**
+     * The context files rendered earlier in this cycle, or else those listed by the scanned manifest.
+     */
+    private static List<ContextManifest.Entry> files(Accumulator acc, @Nullable RenderedContext rendered) {
+        return rendered == null ? acc.getManifestFiles().get() : rendered.getFiles();
+    }
+
     private List<String> targets() {
         if (targetConfigFiles == null) {
             return emptyList();
@@ -209,12 +350,12 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
         return targets;
     }
 
-    private PlainText newConfigFile(String target, Accumulator acc) {
+    private PlainText newConfigFile(String target, Accumulator acc, List<ContextEntry> contextEntries, ExecutionContext ctx) {
         return PlainText.builder()
                 .id(Tree.randomId())
                 .sourcePath(Paths.get(separatorsToSystem(target)))
                 .markers(Markers.EMPTY)
-                .text(generateContextSection(acc.getContextEntries()))
+                .text(section(renderedSection(acc, contextEntries, ctx)))
                 .build();
     }
 
@@ -254,60 +395,200 @@ public class UpdateAgentConfig extends ScanningRecipe<UpdateAgentConfig.Accumula
                 }
 
                 // If no context entries found, nothing to do
-                if (acc.getContextEntries().isEmpty()) {
+                List<ContextEntry> contextEntries = contextEntries(acc, ctx);
+                if (contextEntries.isEmpty()) {
                     return text;
                 }
 
                 String content = text.getText();
-                String newSection = generateContextSection(acc.getContextEntries());
-
-                // Check if context section already exists
-                Matcher matcher = CONTEXT_SECTION_PATTERN.matcher(content);
-                if (matcher.find()) {
-                    // Replace existing section
-                    content = matcher.replaceFirst(Matcher.quoteReplacement(newSection));
-                } else {
-                    // Add new section at the end
-                    if (!content.endsWith("\n")) {
-                        content += "\n";
-                    }
-                    content += "\n" + newSection;
+                RenderedSection rendered = renderedSection(acc, contextEntries, ctx);
+                MarkerSections sections = MarkerSections.parse(content, singleton(CONTEXT_SECTION_NAME));
+
+                // The section was rendered from the same inputs: leave the file untouched
+                if (sections.isSingleSection(CONTEXT_SECTION_NAME) &&
+                    rendered.getHash().equals(sections.attribute(CONTEXT_SECTION_NAME, HASH_ATTRIBUTE))) {
+                    return text;
                 }
 
-                return text.withText(content);
+                // Replace the existing section, collapsing duplicates and stray markers,
+                // or add a new section at the end
+                String updated = sections.splice(singletonMap(CONTEXT_SECTION_NAME, section(rendered)));
+                return updated.equals(content) ? text : text.withText(updated);
             }
         };
     }
 
-    private String generateContextSection(List<ContextEntry> contextEntries) {
-        String template = this.template != null ? this.template : loadTemplate();
-        List<ContextEntry> sorted = new ArrayList<>(contextEntries);
+    /**
+     * The context section inputs for the given entries, hashed once and reused for every config
+     * file until the entries or the published {@link RenderedContext} change.
+     */
+    private RenderedSection renderedSection(Accumulator acc, List<ContextEntry> contextEntries, ExecutionContext ctx) {
+        RenderedContext rendered = RenderedContext.find(ctx);
+        RenderedSection cached = acc.getRenderedSection().get();
+        if (cached != null && cached.renderedFrom(contextEntries, rendered)) {
+            return cached;
+        }
+        long version = rendered == null ? 0 : rendered.getVersion();
+        List<ContextManifest.Entry> files = files(acc, rendered);
+        String calmSummary = rendered == null ? null : rendered.getCalmSummary();
+        RenderedSection section = new RenderedSection(contextEntries, rendered, version, files, calmSummary,
+                inputsHash(contextEntries, files, calmSummary));
+        acc.getRenderedSection().set(section);
+        return section;
+    }
+
+    private String section(RenderedSection rendered) {
+        String section = rendered.getSection().get();
+        if (section == null) {
+            rendered.getSection().compareAndSet(null, generateContextSection(rendered));
+            section = rendered.getSection().get();
+        }
+        return section;
+    }
+
+    /**
+     * A hash of everything the context section is rendered from: the template, the context
+     * entries with their estimated tokens, and the exported tables and CALM summary when the
+     * template references them.
+     */
+    private String inputsHash(List<ContextEntry> contextEntries, List<ContextManifest.Entry> files,
+                              @Nullable String calmSummary) {
+        ContextTemplate compiled = compiledTemplate();
+        StringBuilder inputs = new StringBuilder(compiled.getSource()).append('\0');
+        for (ContextEntry entry : contextEntries) {
+            inputs.append(entry.getDisplayName()).append('\0')
+                  .append(entry.getShortDescription()).append('\0')
+                  .append(entry.getContextFile()).append('\0')
+                  .append(ContextManifest.contextTokens(files, entry.getContextFile())).append('\0');
+        }
+        if (compiled.references(CONTEXT_FILES_PLACEHOLDER)) {
+            for (ContextManifest.Entry table : RenderedContext.tables(files)) {
+                inputs.append(table.getFile()).append('\0')
+                      .append(table.getRows()).append('\0')
+                      .append(table.getBytes()).append('\0')
+                      .append(table.getTokens()).append('\0');
+            }
+        }
+        if (compiled.references(CALM_SUMMARY_PLACEHOLDER)) {
+            inputs.append(calmSummary);
+        }
+        return ContextManifest.sha256(inputs.toString()).substring(0, HASH_LENGTH);
+    }
+
+    private String generateContextSection(RenderedSection rendered) {
+        ContextTemplate compiled = compiledTemplate();
+        List<ContextEntry> sorted = new ArrayList<>(rendered.getContextEntries());
         sorted.sort(Comparator.comparing(ContextEntry::getDisplayName));
-        String contextTable = generateContextTable(sorted);
-        // Replace the placeholder with the generated table. If the template omits the placeholder,
-        // append the table at the end so the context is never silently dropped.
-        String content = template.contains(CONTEXT_TABLE_PLACEHOLDER) ?
-                template.replace(CONTEXT_TABLE_PLACEHOLDER, contextTable) :
-                template + "\n\n" + contextTable;
-
-        return CONTEXT_SECTION_MARKER + "\n" + content + "\n<!-- /prethink-context -->";
+        String content = compiled.render(placeholder -> {
+            switch (placeholder) {
+                case CONTEXT_TABLE_PLACEHOLDER:
+                    return generateContextTable(sorted, rendered.getFiles());
+                case CONTEXT_FILES_PLACEHOLDER:
+                    return generateContextFilesTable(RenderedContext.tables(rendered.getFiles()));
+                case CALM_SUMMARY_PLACEHOLDER:
+                    String calmSummary = rendered.getCalmSummary();
+                    return calmSummary == null ? "" : calmSummary;
+                default:
+                    // Not ours: leave it in place verbatim.
+                    return null;
+            }
+        });
+        // If the template omits the table placeholder, append the table at the end so the
+        // context is never silently dropped.
+        if (!compiled.references(CONTEXT_TABLE_PLACEHOLDER)) {
+            content = content + "\n\n" + generateContextTable(sorted, rendered.getFiles());
+        }
+
+        return MarkerSections.beginMarker(CONTEXT_SECTION_NAME, singletonMap(HASH_ATTRIBUTE, rendered.getHash())) + "\n" + content + "\n" +
+               MarkerSections.endMarker(CONTEXT_SECTION_NAME);
+    }
+
+    private ContextTemplate compiledTemplate() {
+        ContextTemplate compiled = compiledTemplate.get();
+        if (compiled == null) {
+            compiledTemplate.compareAndSet(null, ContextTemplate.compile(template != null ? template : loadTemplate()));
+            compiled = compiledTemplate.get();
+        }
+        return compiled;
     }
 
-    private String generateContextTable(List<ContextEntry> contextEntries) {
+    /**
+     * The table of contexts. When token estimates are known for any of them, a column shows what
+     * reading each context's markdown and CSVs would cost, so agents can choose what to load.
+     */
+    private String generateContextTable(List<ContextEntry> contextEntries, List<ContextManifest.Entry> files) {
+        Map<String, Long> tokensByContext = new HashMap<>();
+        for (ContextEntry entry : contextEntries) {
+            Long tokens = ContextManifest.contextTokens(files, entry.getContextFile());
+            if (tokens != null) {
+                tokensByContext.put(entry.getContextFile(), tokens);
+            }
+        }
+        boolean withTokens = !tokensByContext.isEmpty();
+
         StringBuilder sb = new StringBuilder();
-        sb.append("| Context | Description | Details |\n");
-        sb.append("|---------|-------------|--------|\n");
+        if (withTokens) {
+            sb.append("| Context | Description | Details | Tokens |\n");
+            sb.append("|---------|-------------|---------|--------|\n");
+        } else {
+            sb.append("| Context | Description | Details |\n");
+            sb.append("|---------|-------------|--------|\n");
+        }
 
         for (ContextEntry entry : contextEntries) {
             sb.append("| ").append(entry.getDisplayName())
               .append(" | ").append(entry.getShortDescription())
               .append(" | [`").append(Paths.get(entry.getContextFile()).getFileName())
-              .append("`](").append(entry.getContextFile()).append(") |\n");
+              .append("`](").append(entry.getContextFile()).append(") |");
+            if (withTokens) {
+                Long tokens = tokensByContext.get(entry.getContextFile());
+                sb.append(' ').append(tokens == null ? "" : formatTokens(tokens)).append(" |");
+            }
+            sb.append('\n');
         }
 
         return sb.toString().trim();
     }
 
+    /**
+     * A table of the exported CSV files with their row counts, sizes and estimated tokens, or the
+     * empty string when there are none.
+     */
+    private String generateContextFilesTable(List<ContextManifest.Entry> tables) {
+        if (tables.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("| File | Rows | Size | Tokens |\n");
+        sb.append("|------|------|------|--------|\n");
+        for (ContextManifest.Entry table : tables) {
+            sb.append("| [`").append(separatorsToUnix(CONTEXT_DIR.relativize(Paths.get(table.getFile())).toString()))
+              .append("`](").append(separatorsToUnix(table.getFile()))
+              .append(") | ").append(table.getRows())
+              .append(" | ").append(formatSize(table.getBytes()))
+              .append(" | ").append(formatTokens(table.getTokens())).append(" |\n");
+        }
+        return sb.toString().trim();
+    }
+
+    private static String formatTokens(long tokens) {
+        if (tokens < 1000) {
+            return "~" + tokens;
+        } else if (tokens < 1_000_000) {
+            return String.format(Locale.ROOT, "~%.1fk", tokens / 1000.0);
+        }
+        return String.format(Locale.ROOT, "~%.1fM", tokens / 1_000_000.0);
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
     private String loadTemplate() {
         try (InputStream is = getClass().getResourceAsStream("/org/openrewrite/prethink/prompts/agent-config-section.txt")) {
             if (is == null) {
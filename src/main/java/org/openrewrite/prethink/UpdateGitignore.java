@@ -87,7 +87,14 @@ public class UpdateGitignore extends ScanningRecipe<AtomicBoolean> {
                 if (tree instanceof SourceFile && !contextFilesExist.get()) {
                     SourceFile sourceFile = (SourceFile) tree;
                     Path path = sourceFile.getSourcePath();
-                    if (path.startsWith(CONTEXT_DIR) &&
+                    if (ContextManifest.MANIFEST_PATH.equals(path) && sourceFile instanceof PlainText) {
+                        // The manifest records row counts, so no CSV has to be read
+                        for (ContextManifest.Entry file : ContextManifest.parse(((PlainText) sourceFile).getText())) {
+                            if (file.getRows() != null && file.getRows() > 0) {
+                                contextFilesExist.set(true);
+                            }
+                        }
+                    } else if (path.startsWith(CONTEXT_DIR) &&
                         path.toString().endsWith(".csv") &&
                         sourceFile instanceof PlainText) {
                         String text = ((PlainText) sourceFile).getText();
@@ -95,6 +102,13 @@ public class UpdateGitignore extends ScanningRecipe<AtomicBoolean> {
                         if (hasDataRows(text)) {
                             contextFilesExist.set(true);
                         }
+                    } else if (path.startsWith(CONTEXT_DIR) &&
+                        path.toString().endsWith(".ndjson") &&
+                        sourceFile instanceof PlainText) {
+                        // NDJSON has no header, so any line is a data row
+                        if (!((PlainText) sourceFile).getText().trim().isEmpty()) {
+                            contextFilesExist.set(true);
+                        }
                     }
                 }
                 return tree;
@@ -104,13 +118,10 @@ public class UpdateGitignore extends ScanningRecipe<AtomicBoolean> {
 
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor(AtomicBoolean contextFilesExist) {
-        if (!contextFilesExist.get()) {
-            return TreeVisitor.noop();
-        }
         return new PlainTextVisitor<ExecutionContext>() {
             @Override
             public PlainText visitText(PlainText text, ExecutionContext ctx) {
-                if (GITIGNORE_PATH.equals(text.getSourcePath())) {
+                if (GITIGNORE_PATH.equals(text.getSourcePath()) && contextFilesExist(contextFilesExist, ctx)) {
                     String content = text.getText();
                     String updated = updateGitignoreContent(content);
                     if (!content.equals(updated)) {
@@ -123,29 +134,63 @@ public class UpdateGitignore extends ScanningRecipe<AtomicBoolean> {
     }
 
     /**
-     * Updates the gitignore content to include the correct .moderne patterns.
-     *
-     * @param content The current gitignore content
-     * @return The updated gitignore content
+     * Whether context files with data exist, either scanned from the LST or rendered by
+     * {@link ExportContext} earlier in this cycle. The latter matters in cycle 2, where the scan
+     * still sees the header-only placeholders that ExportContext fills during the edit phase.
+     */
+    private static boolean contextFilesExist(AtomicBoolean scanned, ExecutionContext ctx) {
+        if (scanned.get()) {
+            return true;
+        }
+        RenderedContext rendered = RenderedContext.find(ctx);
+        return rendered != null && rendered.hasDataRows();
+    }
+
+    /**
+     * Whether a CSV has a data row after its comment lines and column header. Scans the text in
+     * place and stops at the first data row, so even a large CSV is neither split nor copied. A
+     * quoted header field may span several lines, none of which count as data.
      */
     static boolean hasDataRows(String text) {
         boolean pastHeaders = false;
-        for (String line : text.split("\n", -1)) {
-            if (line.startsWith("#")) {
-                continue;
-            }
-            if (!pastHeaders) {
-                // First non-comment line is the column header
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '#') {
+                // Comment line
+                int lineEnd = text.indexOf('\n', i);
+                if (lineEnd < 0) {
+                    return false;
+                }
+                i = lineEnd + 1;
+            } else if (pastHeaders) {
+                if (c != '\n') {
+                    return true;
+                }
+                i++;
+            } else {
+                // First non-comment record is the column header
+                boolean quoted = false;
+                while (i < length && (quoted || text.charAt(i) != '\n')) {
+                    if (text.charAt(i) == '"') {
+                        quoted = !quoted;
+                    }
+                    i++;
+                }
+                i++;
                 pastHeaders = true;
-                continue;
-            }
-            if (!line.isEmpty()) {
-                return true;
             }
         }
         return false;
     }
 
+    /**
+     * Updates the gitignore content to include the correct .moderne patterns.
+     *
+     * @param content The current gitignore content
+     * @return The updated gitignore content
+     */
     static String updateGitignoreContent(String content) {
         // Check if already has the correct pattern
         if (content.contains(MODERNE_WILDCARD) && content.contains(CONTEXT_EXCEPTION)) {
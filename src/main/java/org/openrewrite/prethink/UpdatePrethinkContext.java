@@ -59,12 +59,23 @@ public class UpdatePrethinkContext extends Recipe {
 
     @Option(displayName = "Template",
             description = "The template used to generate the context section. The `{{CONTEXT_TABLE}}` placeholder is " +
-                          "replaced with the generated context table. If not specified, a bundled default template is used.",
+                          "replaced with the generated context table, `{{CONTEXT_FILES}}` with a table of the exported " +
+                          "CSV files with their row counts, sizes and estimated tokens, and `{{CALM_SUMMARY}}` with " +
+                          "a one-line summary of the CALM architecture. If not specified, a bundled default template is used.",
             required = false,
             example = "## Available Context\n\n{{CONTEXT_TABLE}}")
     @Nullable
     String template;
 
+    @Option(displayName = "Context budget",
+            description = "A cap on the total size of the exported architecture CSVs, in bytes (e.g. `2MB`) or in " +
+                          "estimated tokens (e.g. `200k tokens`). Tables over their share of the budget keep their " +
+                          "highest ranked rows. If not specified, every row is exported.",
+            required = false,
+            example = "2MB")
+    @Nullable
+    String budget;
+
     String displayName = "Update Prethink context";
 
     String description = "Generate FINOS CALM architecture diagram and update agent configuration files. " +
@@ -78,7 +89,7 @@ public class UpdatePrethinkContext extends Recipe {
                 .recipe(new GenerateCalmArchitecture())
 
                 // Export CALM architecture context
-                .recipe(new ExportContext(
+                .recipe(ExportContext.of(
                         "Architecture",
                         "FINOS CALM architecture diagram",
                         "FINOS CALM (Common Architecture Language Model) architecture diagram showing " +
@@ -95,7 +106,7 @@ public class UpdatePrethinkContext extends Recipe {
                                 SecurityConfiguration.class.getName(),
                                 DeploymentArtifacts.class.getName()
                         )
-                ))
+                ).withBudget(budget))
 
                 // Update agent config files
                 .recipe(new UpdateAgentConfig(targetConfigFiles, template))
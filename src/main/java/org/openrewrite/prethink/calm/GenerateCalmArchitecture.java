@@ -24,6 +24,8 @@ import lombok.Value;
 import org.jspecify.annotations.Nullable;
 import org.openrewrite.*;
 import org.openrewrite.internal.StringUtils;
+import org.openrewrite.prethink.ContextManifest;
+import org.openrewrite.prethink.Prethink;
 import org.openrewrite.prethink.table.CalmRelationships;
 import org.openrewrite.prethink.table.ClassDescriptions;
 import org.openrewrite.prethink.table.DataAssets;
@@ -39,11 +41,12 @@ import org.openrewrite.text.PlainText;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
-import org.openrewrite.prethink.Prethink;
-
 import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
 
 /**
@@ -57,7 +60,7 @@ import static org.openrewrite.prethink.Prethink.CONTEXT_DIR;
 @EqualsAndHashCode(callSuper = false)
 public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchitecture.Accumulator> {
 
-    private static final String CALM_FILENAME = "calm-architecture.json";
+    public static final String CALM_FILENAME = "calm-architecture.json";
     private static final String CALM_SCHEMA = "https://calm.finos.org/draft/2025-03/meta/calm.json";
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
@@ -73,21 +76,43 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
             "Prethink discovery recipes populate first, so it produces nothing useful in isolation. " +
             "Run it as part of a composite such as `org.openrewrite.prethink.UpdatePrethinkContext`.";
 
-
     @Override
-    public boolean causesAnotherCycle() {
-        return true;
+    public void buildRecipeList(RecipeList recipes) {
+        // The CALM file is filled in cycle 2, after which another cycle would have nothing to do.
+        recipes.recipe(Prethink.fillCycle());
     }
 
     @Value
     public static class Accumulator {
         Set<Path> existingContextPaths;
+
+        /**
+         * Set once the CALM file has been rendered from the data tables, so the generate and
+         * visit phases of a cycle share one rendering instead of each building their own.
+         */
+        AtomicBoolean filled = new AtomicBoolean();
+
+        /**
+         * The rendered CALM JSON, or {@code null} when there is no architectural data.
+         */
+        AtomicReference<@Nullable String> calmJson = new AtomicReference<>();
+    }
+
+    /**
+     * The CALM JSON rendered in the current run, with a one-line summary of the architecture it
+     * describes, published under {@link Prethink#RENDERED_CALM}.
+     */
+    @Value
+    public static class Rendering {
+        String json;
+        String summary;
     }
 
     @Override
     public Accumulator getInitialValue(ExecutionContext ctx) {
         debug("[CALM DEBUG] getInitialValue() called, cycle=" + ctx.getCycle());
-        return new Accumulator(new HashSet<>());
+        // Concurrent so the scan phase may visit source files from several threads.
+        return new Accumulator(ConcurrentHashMap.newKeySet());
     }
 
     @Override
@@ -122,18 +147,25 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
         if (ctx.getCycle() == 1) {
             // In cycle 1, DATA_TABLES won't be populated yet (rows are inserted in visitor phase).
             // Generate a placeholder to trigger cycle 2.
+            List<SourceFile> placeholders = new ArrayList<>(2);
             if (!acc.getExistingContextPaths().contains(calmPath)) {
                 debug("[CALM DEBUG] cycle 1: generating placeholder to trigger cycle 2");
-                PlainText placeholder = PlainText.builder()
+                placeholders.add(PlainText.builder()
                         .text("{}")
                         .sourcePath(calmPath)
-                        .build();
-                return singletonList(placeholder);
+                        .build());
             }
+            if (!acc.getExistingContextPaths().contains(ContextManifest.MANIFEST_PATH) &&
+                ContextManifest.claimPlaceholder(ctx)) {
+                placeholders.add(ContextManifest.placeholder());
+            }
+            return placeholders;
         } else {
-            // Cycle 2+: DATA_TABLES should be populated from cycle 1 visitors
+            // Cycle 2+: DATA_TABLES should be populated from cycle 1 visitors. Render here,
+            // ahead of every recipe's edit phase, so the published summary is available to
+            // UpdateAgentConfig in this same cycle.
+            String content = renderOnce(acc, ctx);
             if (!acc.getExistingContextPaths().contains(calmPath)) {
-                String content = generateCalmJsonFromDataTables(ctx);
                 if (content != null) {
                     debug("[CALM DEBUG] cycle 2+: generating CALM file at " + calmPath);
                     PlainText calmFile = PlainText.builder()
@@ -158,10 +190,9 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
                 // existing calm-architecture.json gets updated. The placeholder workaround in
                 // generate() only fires when the file is absent from the LST; once #3661 made
                 // .moderne/context/* files visible in the LST, that workaround stops triggering
-                // cycle 2 for repos that already have the file. Request another cycle here so
-                // the scheduler doesn't terminate the loop after cycle 1.
+                // cycle 2 for repos that already have the file. Prethink.fillCycle(), in this
+                // recipe's list, requests it so the scheduler doesn't terminate after cycle 1.
                 if (ctx.getCycle() == 1) {
-                    ctx.putMessage(Prethink.CYCLE_TRIGGER, true);
                     return tree;
                 }
                 // Only process in cycle 2 when DATA_TABLES is populated from cycle 1 visitors.
@@ -173,9 +204,11 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
                     PlainText pt = (PlainText) tree;
                     Path path = pt.getSourcePath();
 
-                    if (path.equals(CONTEXT_DIR.resolve(CALM_FILENAME))) {
+                    if (path.equals(ContextManifest.MANIFEST_PATH)) {
+                        return ContextManifest.fill(pt, ctx);
+                    } else if (path.equals(CONTEXT_DIR.resolve(CALM_FILENAME))) {
                         debug("[CALM DEBUG] visitor processing CALM file, cycle=" + ctx.getCycle());
-                        String newContent = generateCalmJsonFromDataTables(ctx);
+                        String newContent = renderOnce(acc, ctx);
 
                         // No architectural data - delete the placeholder file
                         if (newContent == null) {
@@ -205,7 +238,60 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
         return result;
     }
 
-    private @Nullable String generateCalmJsonFromDataTables(ExecutionContext ctx) {
+    /**
+     * Render the CALM JSON from the data tables once per cycle, caching it on the accumulator,
+     * and publish a summary of it for sibling recipes.
+     */
+    private @Nullable String renderOnce(Accumulator acc, ExecutionContext ctx) {
+        if (acc.getFilled().get()) {
+            return acc.getCalmJson().get();
+        }
+        synchronized (acc) {
+            if (!acc.getFilled().get()) {
+                CalmDocument document = generateCalmDocumentFromDataTables(ctx);
+                String json = null;
+                if (document != null) {
+                    try {
+                        json = OBJECT_MAPPER.writeValueAsString(document);
+                        ctx.putMessage(Prethink.RENDERED_CALM, new Rendering(json, summarize(document)));
+                    } catch (JsonProcessingException e) {
+                        json = null;
+                    }
+                }
+                acc.getCalmJson().set(json);
+                acc.getFilled().set(true);
+            }
+            return acc.getCalmJson().get();
+        }
+    }
+
+    /**
+     * A one-line summary of the architecture, e.g. "5 nodes (3 service, 2 database) and 4 relationships".
+     */
+    static String summarize(CalmDocument document) {
+        Map<String, Integer> nodesByType = new TreeMap<>();
+        for (CalmNode node : document.getNodes()) {
+            nodesByType.merge(node.getNodeType(), 1, Integer::sum);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(document.getNodes().size()).append(document.getNodes().size() == 1 ? " node" : " nodes");
+        if (!nodesByType.isEmpty()) {
+            sb.append(" (");
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : nodesByType.entrySet()) {
+                if (i++ > 0) {
+                    sb.append(", ");
+                }
+                sb.append(entry.getValue()).append(' ').append(entry.getKey());
+            }
+            sb.append(")");
+        }
+        int relationships = document.getRelationships().size();
+        return sb.append(" and ").append(relationships).append(relationships == 1 ? " relationship" : " relationships")
+                .toString();
+    }
+
+    private @Nullable CalmDocument generateCalmDocumentFromDataTables(ExecutionContext ctx) {
         DataTableStore store = DataTableExecutionContextView.view(ctx).getDataTableStore();
 
         debug("[CALM DEBUG] store tables: " + store.getDataTables().size());
@@ -243,12 +329,7 @@ public class GenerateCalmArchitecture extends ScanningRecipe<GenerateCalmArchite
         builder.addMessagingNodes(messaging);
         builder.addMethodCallRelationships(methodCalls);
         builder.addComposedOfRelationships();
-
-        try {
-            return OBJECT_MAPPER.writeValueAsString(builder.build());
-        } catch (JsonProcessingException e) {
-            return null;
-        }
+        return builder.build();
     }
 
     private static final Set<String> LEAF_PACKAGE_SEGMENTS = new HashSet<>(Arrays.asList(
@@ -16,6 +16,7 @@
 package org.openrewrite.prethink.table;
 
 import lombok.Value;
+import org.jspecify.annotations.Nullable;
 import org.openrewrite.Column;
 import org.openrewrite.DataTable;
 import org.openrewrite.Recipe;
@@ -43,5 +44,10 @@ public class ContextRegistry extends DataTable<ContextRegistry.Row> {
         @Column(displayName = "Context file",
                 description = "Path to the markdown file describing this context.")
         String contextFile;
+
+        @Column(displayName = "Estimated tokens",
+                description = "Approximate number of tokens needed to read the context's markdown and CSV files, when known.")
+        @Nullable
+        Long estimatedTokens;
     }
 }
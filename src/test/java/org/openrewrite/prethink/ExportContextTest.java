@@ -21,25 +21,29 @@ import org.junit.jupiter.api.io.TempDir;
 import org.openrewrite.*;
 import org.openrewrite.config.CompositeRecipe;
 import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.prethink.table.ClassDescriptions;
 import org.openrewrite.prethink.table.TestMapping;
 import org.openrewrite.test.RecipeSpec;
 import org.openrewrite.test.RewriteTest;
 import org.openrewrite.text.PlainText;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.openrewrite.test.SourceSpecs.text;
 
 class ExportContextTest implements RewriteTest {
 
     @Override
     public void defaults(RecipeSpec spec) {
-        spec.recipe(new ExportContext(
+        spec.recipe(ExportContext.of(
           "Test Context",
           "Short description for testing",
           "Long description for testing purposes",
@@ -85,7 +89,7 @@ class ExportContextTest implements RewriteTest {
     @Test
     void tableToFilenameConversion() {
         // Test the table name to filename conversion logic
-        ExportContext exportContext = new ExportContext(
+        ExportContext exportContext = ExportContext.of(
           "Test Context",
           "Short description",
           "Long description",
@@ -110,7 +114,7 @@ class ExportContextTest implements RewriteTest {
 
     @Test
     void toKebabCaseConversion() {
-        ExportContext exportContext = new ExportContext(
+        ExportContext exportContext = ExportContext.of(
           "Test Context",
           "Short description",
           "Long description",
@@ -135,7 +139,7 @@ class ExportContextTest implements RewriteTest {
 
     @Test
     void getContextFilename() {
-        ExportContext exportContext = new ExportContext(
+        ExportContext exportContext = ExportContext.of(
           "Test Coverage",
           "Short description",
           "Long description",
@@ -248,7 +252,7 @@ class ExportContextTest implements RewriteTest {
             public List<Recipe> getRecipeList() {
                 return List.of(
                   new PopulateTestMappingA(),
-                  new ExportContext(
+                  ExportContext.of(
                     "Test Coverage",
                     "Maps tests to implementations",
                     "Detailed description of test coverage context",
@@ -342,7 +346,7 @@ class ExportContextTest implements RewriteTest {
 
         Recipe composite = new CompositeRecipe(List.of(
           new PopulateGroupedTestMapping(),
-          new ExportContext(
+          ExportContext.of(
             "Test Coverage",
             "Maps tests to implementations",
             "Detailed description of test coverage context",
@@ -388,7 +392,7 @@ class ExportContextTest implements RewriteTest {
 
         // No producer populates TestMapping, so the table stays empty.
         Recipe composite = new CompositeRecipe(List.of(
-          new ExportContext(
+          ExportContext.of(
             "Test Coverage",
             "Maps tests to implementations",
             "Detailed description of test coverage context",
@@ -430,7 +434,7 @@ class ExportContextTest implements RewriteTest {
         // TestMapping gets rows; CodingConventions has no producer (stays empty).
         Recipe composite = new CompositeRecipe(List.of(
           new PopulateGroupedTestMapping(),
-          new ExportContext(
+          ExportContext.of(
             "Test Coverage",
             "Maps tests to implementations",
             "Detailed description of test coverage context",
@@ -472,6 +476,1199 @@ class ExportContextTest implements RewriteTest {
           .doesNotContain("coding-conventions.csv");
     }
 
+    /**
+     * Populates TestMapping with two rows about the frequently referenced {@code com.example.Foo}
+     * and, between them, one row about the peripheral {@code com.example.Rare}.
+     */
+    @Getter
+    public static class PopulateRankedTestMapping extends Recipe {
+        transient TestMapping testMapping = new TestMapping(this);
+
+        String displayName = "Populate ranked test mapping";
+        String description = "Populates TestMapping with rows of differing class reference counts.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/FooTest.java", "com.example.FooTest", "testFoo()",
+                          "src/main/java/Foo.java", "com.example.Foo", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/RareTest.java", "com.example.RareTest", "testRare()",
+                          "src/main/java/Rare.java", "com.example.Rare", "rare()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/FooTest.java", "com.example.FooTest", "testFoo2()",
+                          "src/main/java/Foo.java", "com.example.Foo", "bar()", null, null));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    /**
+     * A budget that fits the header and two of the three rows keeps the two rows about the most
+     * referenced classes, in their original order, and documents the truncation in the markdown.
+     */
+    @Test
+    void prunesLowestRankedRowsToFitBudget(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withBudget("400B")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        String csv = generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll();
+        assertThat(csv).doesNotContain("com.example.Rare");
+        assertThat(csv.indexOf("testFoo()")).isPositive().isLessThan(csv.indexOf("testFoo2()"));
+
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("## Context Budget")
+          .contains("a budget of 400 bytes")
+          .contains("| Test mapping | 2 | 3 |")
+          .contains("**Rows:** 2 of 3 total");
+    }
+
+    @Test
+    void exportsOnlyRowsPassingRowFilters(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          )
+            // The second predicate names a column TestMapping doesn't have, so it doesn't apply.
+            .withRowFilters(List.of("Test class!=com.example.Rare*", "Entity class=none"))
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll())
+          .contains("testFoo()")
+          .contains("testFoo2()")
+          .doesNotContain("com.example.Rare");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("**Filtered:** only rows passing `Test class!=com.example.Rare*` are included.");
+    }
+
+    /**
+     * Populates TestMapping with rows whose implementation is production code or, at the root and
+     * in a nested module, a test helper.
+     */
+    @Getter
+    public static class PopulateTestHelperMapping extends Recipe {
+        transient TestMapping testMapping = new TestMapping(this);
+
+        String displayName = "Populate test helper mapping";
+        String description = "Populates TestMapping with rows about production code and test helpers.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "core/src/test/java/FooTest.java", "com.acme.core.FooTest", "testFoo()",
+                          "core/src/main/java/Foo.java", "com.acme.core.Foo", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "core/src/test/java/FooTest.java", "com.acme.core.FooTest", "testFoo()",
+                          "core/src/test/java/Fixtures.java", "com.acme.core.Fixtures", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/BarTest.java", "com.acme.BarTest", "testBar()",
+                          "src/test/java/Helpers.java", "com.acme.Helpers", "bar()", null, null));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    @Test
+    void filtersRowsByPathGlobInNestedModulesAndAtTheRoot(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateTestHelperMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withRowFilters(List.of("Implementation source path!=**/src/test/**"))
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll())
+          .contains("core/src/main/java/Foo.java")
+          .doesNotContain("core/src/test/java/Fixtures.java")
+          .doesNotContain("src/test/java/Helpers.java");
+    }
+
+    @Test
+    void projectsColumnsAndTruncatesValues(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withColumns(List.of("Test class", "implementationMethod")).withMaxValueLength(10)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll())
+          .startsWith("Test class,Implementation method\n")
+          .contains("com.examp…,foo()\n")
+          .doesNotContain("src/test/java");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("| Test class |")
+          .contains("| Implementation method |")
+          .doesNotContain("| Test source path |")
+          .contains("Values longer than 10 characters are truncated");
+    }
+
+    /**
+     * Populates TestMapping with rows about classes in three packages under two prefixes.
+     */
+    @Getter
+    public static class PopulatePackagedTestMapping extends Recipe {
+        transient TestMapping testMapping = new TestMapping(this);
+
+        String displayName = "Populate packaged test mapping";
+        String description = "Populates TestMapping with rows about classes in several packages.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "core/src/test/java/FooTest.java", "com.acme.core.FooTest", "testFoo()",
+                          "core/src/main/java/Foo.java", "com.acme.core.Foo", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "other/src/test/java/BazTest.java", "org.other.BazTest", "testBaz()",
+                          "other/src/main/java/Baz.java", "org.other.Baz", "baz()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "api/src/test/java/BarTest.java", "com.acme.api.BarTest", "testBar()",
+                          "api/src/main/java/Bar.java", "com.acme.api.Bar", "bar()", null, null));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    @Test
+    void partitionsTableByPackagePrefix(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulatePackagedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withPartitionBy("Implementation class:2")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated).doesNotContainKey(Path.of(".moderne/context/test-mapping.csv"));
+        String[] lines = generated.get(Path.of(".moderne/context/test-mapping/partitions.csv")).printAll().split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).startsWith("Test source path,");
+        assertThat(lines[1] + lines[2])
+          .contains("com.acme.core.Foo")
+          .contains("com.acme.api.Bar")
+          .doesNotContain("org.other");
+        assertThat(lines[3])
+          .contains("org.other.Baz")
+          .doesNotContain("com.acme");
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping/index.md")).printAll())
+          .contains("Partitioned by `Implementation class:2`")
+          .contains("[`partitions.csv`](partitions.csv)")
+          .contains("| com.acme | 2-3 | 2 |")
+          .contains("| org.other | 4 | 1 |");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("[`test-mapping/partitions.csv`](test-mapping/partitions.csv)")
+          .contains("listed in [`test-mapping/index.md`](test-mapping/index.md)");
+    }
+
+    /**
+     * Populates TestMapping with rows in two modules whose names differ only in a character that
+     * can't be part of a file name.
+     */
+    @Getter
+    public static class PopulateSimilarModulesTestMapping extends Recipe {
+        transient TestMapping testMapping = new TestMapping(this);
+
+        String displayName = "Populate similar modules test mapping";
+        String description = "Populates TestMapping with rows in the modules `a/b` and `a-b`.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "a/b/src/test/java/FooTest.java", "com.acme.FooTest", "testFoo()",
+                          "a/b/src/main/java/Foo.java", "com.acme.Foo", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "a-b/src/test/java/BarTest.java", "com.acme.BarTest", "testBar()",
+                          "a-b/src/main/java/Bar.java", "com.acme.Bar", "bar()", null, null));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    @Test
+    void keepsPartitionsWhoseKeysOnlyDifferInPunctuationApart(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateSimilarModulesTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withPartitionBy("Implementation source path")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        String[] lines = generated.get(Path.of(".moderne/context/test-mapping/partitions.csv")).printAll().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[1]).contains("a-b/src/main/java/Bar.java");
+        assertThat(lines[2]).contains("a/b/src/main/java/Foo.java");
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping/index.md")).printAll())
+          .contains("| a-b | 2 | 1 |")
+          .contains("| a/b | 3 | 1 |");
+    }
+
+    @Test
+    void exportsTableAsNdjson(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulatePackagedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withColumns(List.of("testClass", "Implementation class")).withFormat("ndjson")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated).doesNotContainKey(Path.of(".moderne/context/test-mapping.csv"));
+        String ndjson = generated.get(Path.of(".moderne/context/test-mapping.ndjson")).printAll();
+        assertThat(ndjson.split("\n"))
+          .containsExactlyInAnyOrder(
+            "{\"testClass\":\"com.acme.core.FooTest\",\"implementationClass\":\"com.acme.core.Foo\"}",
+            "{\"testClass\":\"org.other.BazTest\",\"implementationClass\":\"org.other.Baz\"}",
+            "{\"testClass\":\"com.acme.api.BarTest\",\"implementationClass\":\"com.acme.api.Bar\"}"
+          );
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("[`test-mapping.ndjson`](test-mapping.ndjson)")
+          .contains("| Implementation class | `implementationClass` |");
+    }
+
+    @Test
+    void writesSqlScriptOfAllTables(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateArchitectureTables(),
+          ExportContext.of(
+            "Architecture",
+            "Service architecture",
+            "Detailed description of the architecture context",
+            List.of(
+              "org.openrewrite.prethink.table.ServiceEndpoints",
+              "org.openrewrite.prethink.table.ProjectMetadata"
+            )
+          ).withSqlScript(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/main/java/com/example/UserController.java"))
+            .text("package com.example;\npublic class UserController {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated.get(Path.of(".moderne/context/architecture.sql")).printAll())
+          .contains("BEGIN TRANSACTION;")
+          .contains("CREATE TABLE \"service_endpoints\" (\"entityId\" TEXT, \"sourcePath\" TEXT, \"serviceClass\" TEXT,")
+          .contains("INSERT INTO \"service_endpoints\" VALUES\n('endpoint:com.example.UserController#listUsers()', " +
+                    "'src/main/java/com/example/UserController.java', 'com.example.UserController', 'listUsers', 'GET',")
+          .contains("CREATE INDEX \"service_endpoints_entityId\" ON \"service_endpoints\" (\"entityId\");")
+          .contains("CREATE INDEX \"service_endpoints_sourcePath\" ON \"service_endpoints\" (\"sourcePath\");")
+          .contains("CREATE TABLE \"project_metadata\"")
+          .endsWith("COMMIT;\n");
+        assertThat(generated.get(Path.of(".moderne/context/architecture.md")).printAll())
+          .contains("[`architecture.sql`](architecture.sql)")
+          .contains("| Service endpoints | `service_endpoints` |")
+          .contains("| Entity ID | `entityId` |");
+    }
+
+    @Test
+    void sqlScriptHoldsTheSampledRows(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withSqlScript(true).withSample("2 by Test class")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, String> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+            }
+        }
+
+        // The script holds the same rows as the CSV: the rare test class's only row, and one of FooTest's two
+        String csv = generated.get(Path.of(".moderne/context/test-mapping.csv"));
+        String sql = generated.get(Path.of(".moderne/context/test-coverage.sql"));
+        assertThat(sql).contains("'com.example.RareTest'");
+        for (String method : List.of("testFoo()", "testFoo2()")) {
+            assertThat(sql.contains("'" + method + "'")).as(method).isEqualTo(csv.contains("," + method + ","));
+        }
+        assertThat(sql.split("'com\\.example\\.FooTest'", -1)).hasSize(2);
+    }
+
+    @Getter
+    public static class PopulateClassDescriptions extends Recipe {
+        transient ClassDescriptions classDescriptions = new ClassDescriptions(this);
+
+        String displayName = "Populate class descriptions";
+        String description = "Populates ClassDescriptions with a few described classes.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        classDescriptions.insertRow(ctx, new ClassDescriptions.Row(
+                          "src/main/java/com/acme/OrderService.java", "com.acme.OrderService", "abc",
+                          "Places and cancels orders, publishing an event for each.", "Order management",
+                          "Service", null, null, 10));
+                        classDescriptions.insertRow(ctx, new ClassDescriptions.Row(
+                          "src/main/java/com/acme/RetryingClient.java", "com.acme.RetryingClient", "def",
+                          "HTTP client that retries failed requests with exponential backoff.", "Retry handling",
+                          "Decorator", null, null, 10));
+                        classDescriptions.insertRow(ctx, new ClassDescriptions.Row(
+                          "src/main/java/com/acme/OrderRepository.java", "com.acme.OrderRepository", "ghi",
+                          "Stores orders in the database.", "Order persistence",
+                          "Repository", null, null, 10));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    @Test
+    void buildsSearchIndexOverDescriptions(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateClassDescriptions(),
+          ExportContext.of(
+            "Class Descriptions",
+            "What each class does",
+            "Detailed description of the class descriptions context",
+            List.of("org.openrewrite.prethink.table.ClassDescriptions")
+          ).withSearchColumns(List.of("Description", "responsibility"))
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        SearchIndex index = SearchIndex.parse(
+          generated.get(Path.of(".moderne/context/class-descriptions.idx")).printAll());
+        assertThat(index.getRows()).isEqualTo(3);
+        assertThat(index.search("retries", 10))
+          .extracting(SearchIndex.Hit::getRow, SearchIndex.Hit::getLabel)
+          .containsExactly(tuple(1, "com.acme.RetryingClient"));
+        assertThat(index.search("orders", 2))
+          .extracting(SearchIndex.Hit::getLabel)
+          .containsExactlyInAnyOrder("com.acme.OrderService", "com.acme.OrderRepository");
+        assertThat(generated.get(Path.of(".moderne/context/class-descriptions.md")).printAll())
+          .contains("**Search index:** [`class-descriptions.idx`](class-descriptions.idx)");
+    }
+
+    @Test
+    void buildsMembershipFilterOverKeyColumns(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulatePackagedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withMembershipColumns(List.of("Test class", "implementationClass"))
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        MembershipFilter filter = MembershipFilter.parse(
+          generated.get(Path.of(".moderne/context/test-mapping.bloom")).printAll());
+        assertThat(filter.mightContain("com.acme.core.Foo")).isTrue();
+        assertThat(filter.mightContain("com.acme.api.BarTest")).isTrue();
+        assertThat(filter.mightContain("org.other.Baz")).isTrue();
+        // Never a false negative, and with 6 keys and a 1% false positive rate rarely a false positive
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain("com.acme.Missing" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(50);
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("**Membership filter:** [`test-mapping.bloom`](test-mapping.bloom)")
+          .contains("whether a Test class or Implementation class might have a row");
+    }
+
+    @Test
+    void joinsTablesIntoContextCardsPerClass(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulatePackagedTestMapping(),
+          new PopulateClassDescriptions(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of(
+              "org.openrewrite.prethink.table.ClassDescriptions",
+              "org.openrewrite.prethink.table.TestMapping"
+            )
+          ).withContextCards(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        // A test mapping row is on the card of both its test class and its implementation class
+        String cards = generated.get(Path.of(".moderne/context/test-coverage-cards/cards.md")).printAll();
+        assertThat(cards.substring(cards.indexOf("## com.acme.core\n"), cards.indexOf("## org.other\n")))
+          .contains("### com.acme.core.Foo\n\n#### Test mapping")
+          .contains("### com.acme.core.FooTest\n\n#### Test mapping")
+          .contains("| core/src/test/java/FooTest.java | com.acme.core.FooTest | testFoo() |")
+          .doesNotContain("com.acme.api");
+        assertThat(cards.substring(cards.indexOf("## com.acme\n"), cards.indexOf("## com.acme.api\n")))
+          .contains("### com.acme.RetryingClient\n\n#### Class descriptions")
+          .contains("HTTP client that retries failed requests with exponential backoff.")
+          .doesNotContain("#### Test mapping");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage-cards/index.md")).printAll())
+          .contains("| com.acme.api.Bar | [`cards.md`](cards.md#comacmeapibar) |")
+          .contains("| com.acme.OrderService | [`cards.md`](cards.md#comacmeorderservice) |");
+        assertThat(generated).doesNotContainKey(Path.of(".moderne/context/test-coverage-cards/com.acme.core.md"));
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("## Context Cards")
+          .contains("[`test-coverage-cards/index.md`](test-coverage-cards/index.md)");
+    }
+
+    @Test
+    void rollsTablesUpThePackageHierarchy(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulatePackagedTestMapping(),
+          new PopulateClassDescriptions(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of(
+              "org.openrewrite.prethink.table.ClassDescriptions",
+              "org.openrewrite.prethink.table.TestMapping"
+            )
+          ).withPackageSummary(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        // Parents come before their children, and count the classes and rows of all of them
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage-package-summary.csv")).printAll())
+          .startsWith("Package,Depth,Classes,Class descriptions rows,Test mapping rows," +
+                      "Top responsibilities,Top patterns,Top error handling\n")
+          .containsSubsequence(
+            "\ncom,1,7,3,2,",
+            "\ncom.acme,2,7,3,2,Order management (1); Order persistence (1); Retry handling (1)," +
+            "Decorator (1); Repository (1); Service (1)",
+            "\ncom.acme.api,3,2,0,1",
+            "\ncom.acme.core,3,2,0,1",
+            "\norg,1,2,0,1",
+            "\norg.other,2,2,0,1"
+          );
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("## Package Summary")
+          .contains("[`test-coverage-package-summary.csv`](test-coverage-package-summary.csv)");
+    }
+
+    @Test
+    void describesTheShapeOfEachColumn(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateClassDescriptions(),
+          ExportContext.of(
+            "Class Descriptions",
+            "Describes classes",
+            "Detailed description of classes",
+            List.of("org.openrewrite.prethink.table.ClassDescriptions")
+          ).withColumns(List.of("className", "pattern2", "inferenceTimeMs"))
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        SourceFile markdown = run.getChangeset().getAllResults().stream()
+          .map(Result::getAfter)
+          .filter(after -> after != null && after.getSourcePath().equals(Path.of(".moderne/context/class-descriptions.md")))
+          .findFirst()
+          .orElseThrow();
+        assertThat(markdown.printAll())
+          .contains("**Rows:** 3")
+          .contains("| Column | Description | Nulls | Distinct | Top values | Range |")
+          .containsPattern("\\| Class name \\| [^|]+ \\| 0 \\| ~3 \\| \\| \\|")
+          .containsPattern("\\| Pattern 2 \\| [^|]+ \\| 3 \\| ~0 \\| \\| \\|")
+          .containsPattern("\\| Inference time \\(ms\\) \\| [^|]+ \\| 0 \\| ~1 \\| `10` \\(3\\) \\| 10 – 10 \\|");
+    }
+
+    @Test
+    void dropsRowsIdenticalToAnEarlierRow(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        // Two recipes writing the same row, as when several recipes insert into the same table
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateTestMappingA(),
+          new PopulateTestMappingA(),
+          new PopulateTestMappingB(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withDeduplicate(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build(),
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/BarTest.java"))
+            .text("package com.example;\npublic class BarTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        String csv = generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll();
+        assertThat(csv.split("\n"))
+          .hasSize(3)
+          .filteredOn(line -> line.contains("testFoo()"))
+          .hasSize(1);
+        assertThat(csv).contains("testBar()");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("**Deduplicated:** 1 row identical to an earlier row was dropped.")
+          .contains("**Rows:** 2");
+    }
+
+    /**
+     * Populates TestMapping with two different rows whose values hold the same characters in the
+     * same order, split between the test class and the test method at different places.
+     */
+    @Getter
+    public static class PopulateRunTogetherTestMapping extends Recipe {
+        transient TestMapping testMapping = new TestMapping(this);
+
+        String displayName = "Populate run-together test mapping";
+        String description = "Populates TestMapping with rows that differ only in where one value ends.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    if (tree instanceof SourceFile sf &&
+                      sf.getSourcePath().toString().endsWith("FooTest.java")) {
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/FooTest.java", "com.example.Foo\u0002Test", "testFoo()",
+                          "src/main/java/Foo.java", "com.example.Foo", "foo()", null, null));
+                        testMapping.insertRow(ctx, new TestMapping.Row(
+                          "src/test/java/FooTest.java", "com.example.Foo", "Test\u0002testFoo()",
+                          "src/main/java/Foo.java", "com.example.Foo", "foo()", null, null));
+                    }
+                    return tree;
+                }
+            };
+        }
+    }
+
+    @Test
+    void keepsDifferentRowsWhoseValuesRunTogether(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRunTogetherTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withDeduplicate(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        assertThat(generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll().split("\n")).hasSize(3);
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .doesNotContain("**Deduplicated:**");
+    }
+
+    @Test
+    void samplesRowsStratifiedByColumn(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withSample("2 by Test class")
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        // The rare test class keeps its only row, and FooTest one of its two
+        String csv = generated.get(Path.of(".moderne/context/test-mapping.csv")).printAll();
+        assertThat(csv.split("\n"))
+          .hasSize(3)
+          .filteredOn(line -> line.contains("com.example.FooTest"))
+          .hasSize(1);
+        assertThat(csv).contains("com.example.RareTest");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("**Sampled:** 2 of 3 rows, chosen at random and shared evenly between the values of Test class.")
+          .contains("**Rows:** 2 of 3 total");
+    }
+
+    @Test
+    void reportsChangesSinceThePreviousRender(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withChangeReport(true)
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build(),
+          PlainText.builder()
+            .sourcePath(Path.of(".moderne/context/test-mapping.csv"))
+            .text("""
+              Test source path,Test class,Test method,Implementation source path,Implementation class,Implementation method,Test summary,Test checksum
+              src/test/java/FooTest.java,com.example.FooTest,testFoo(),src/main/java/Foo.java,com.example.Foo,foo(),Tests foo,
+              src/test/java/OldTest.java,com.example.OldTest,testOld(),src/main/java/Old.java,com.example.Old,old(),,
+              """)
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        java.util.Map<Path, SourceFile> generated = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                generated.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+
+        // Rows are matched on the test and the implementation they map, so a new summary is a change
+        assertThat(generated.get(Path.of(".moderne/context/changes/test-coverage.md")).printAll())
+          .contains("| Test mapping | Test class + Test method + Implementation class + Implementation method | 2 | 1 | 1 | 0 |")
+          .contains("- `com.example.RareTest testRare() com.example.Rare rare()`")
+          .contains("- `com.example.OldTest testOld() com.example.Old old()`")
+          .contains("- `com.example.FooTest testFoo() com.example.Foo foo()`: Test summary");
+        assertThat(generated.get(Path.of(".moderne/context/test-coverage.md")).printAll())
+          .contains("## Changes")
+          .contains("[`changes/test-coverage.md`](changes/test-coverage.md)");
+    }
+
+    @Test
+    void changeReportIsNotListedAsAContext(@TempDir Path firstRun, @TempDir Path secondRun) {
+        java.util.Map<Path, String> files = new java.util.HashMap<>();
+        for (Result result : runReportingChanges(firstRun, List.of()).getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                files.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+            }
+        }
+        assertThat(files).containsKey(Path.of(".moderne/context/changes/test-coverage.md"));
+
+        // The second run scans the report the first one left behind
+        List<SourceFile> previousRender = new ArrayList<>();
+        files.forEach((path, text) -> previousRender.add(PlainText.builder().sourcePath(path).text(text).build()));
+        for (Result result : runReportingChanges(secondRun, previousRender).getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                files.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+            }
+        }
+        assertThat(files.get(Path.of("CLAUDE.md")))
+          .contains("test-coverage.md")
+          .doesNotContain("Test Coverage Changes")
+          .doesNotContain("changes/test-coverage.md");
+    }
+
+    private static RecipeRun runReportingChanges(Path dataTablesDir, List<SourceFile> previousRender) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withChangeReport(true),
+          new UpdateAgentConfig(null, null)
+        ));
+
+        List<SourceFile> sources = new ArrayList<>(previousRender);
+        sources.add(PlainText.builder()
+          .sourcePath(Path.of("src/test/java/FooTest.java"))
+          .text("package com.example;\npublic class FooTest {}")
+          .build());
+        return composite.run(new InMemoryLargeSourceSet(sources), ctx, 3, 1);
+    }
+
+    @Test
+    void leavesTablesWithUnchangedRowsAsTheyAre(@TempDir Path firstRun, @TempDir Path secondRun) {
+        java.util.Map<Path, String> rendered = renderSkippingUnchanged(firstRun);
+        Path manifestPath = Path.of(".moderne/context/manifest.json");
+        assertThat(rendered.get(manifestPath)).contains("\"fingerprint\"");
+
+        // Edit the CSV and the hash the manifest lists for it alike, as though the previous render
+        // had written it that way: only a table that was rendered again would undo the edit
+        Path csvPath = Path.of(".moderne/context/test-mapping.csv");
+        String csv = rendered.get(csvPath);
+        String edited = csv.replace("testFoo()", "testFoX()");
+        rendered.put(csvPath, edited);
+        rendered.put(manifestPath, rendered.get(manifestPath)
+          .replace(ContextManifest.sha256(csv), ContextManifest.sha256(edited)));
+
+        RecipeRun run = runSkippingUnchanged(secondRun, previousRender(rendered));
+        assertThat(run.getChangeset().getAllResults())
+          .noneMatch(r -> r.getAfter() != null && r.getAfter().getSourcePath().equals(csvPath));
+    }
+
+    @Test
+    void rendersTablesEditedSinceThePreviousRenderAgain(@TempDir Path firstRun, @TempDir Path secondRun) {
+        java.util.Map<Path, String> rendered = renderSkippingUnchanged(firstRun);
+
+        // An edit that keeps the size of the CSV still leaves it with another hash than the manifest lists
+        Path csvPath = Path.of(".moderne/context/test-mapping.csv");
+        rendered.put(csvPath, rendered.get(csvPath).replace("testFoo()", "testFoX()"));
+
+        RecipeRun run = runSkippingUnchanged(secondRun, previousRender(rendered));
+        assertThat(run.getChangeset().getAllResults())
+          .filteredOn(r -> r.getAfter() != null && r.getAfter().getSourcePath().equals(csvPath))
+          .singleElement()
+          .satisfies(r -> assertThat(r.getAfter().printAll()).contains("testFoo()").doesNotContain("testFoX()"));
+    }
+
+    private static java.util.Map<Path, String> renderSkippingUnchanged(Path dataTablesDir) {
+        java.util.Map<Path, String> rendered = new java.util.HashMap<>();
+        for (Result result : runSkippingUnchanged(dataTablesDir, List.of()).getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                rendered.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+            }
+        }
+        return rendered;
+    }
+
+    private static List<SourceFile> previousRender(java.util.Map<Path, String> rendered) {
+        List<SourceFile> previousRender = new ArrayList<>();
+        rendered.forEach((path, text) -> previousRender.add(PlainText.builder().sourcePath(path).text(text).build()));
+        return previousRender;
+    }
+
+    private static RecipeRun runSkippingUnchanged(Path dataTablesDir, List<SourceFile> previousRender) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateRankedTestMapping(),
+          ExportContext.of(
+            "Test Coverage",
+            "Maps tests to implementations",
+            "Detailed description of test coverage context",
+            List.of("org.openrewrite.prethink.table.TestMapping")
+          ).withSkipUnchanged(true)
+        ));
+
+        List<SourceFile> sources = new ArrayList<>(previousRender);
+        sources.add(PlainText.builder()
+          .sourcePath(Path.of("src/test/java/FooTest.java"))
+          .text("package com.example;\npublic class FooTest {}")
+          .build());
+        return composite.run(new InMemoryLargeSourceSet(sources), ctx, 3, 1);
+    }
+
+    @Test
+    void rejectsMalformedSample() {
+        ExportContext exportContext = ExportContext.of(
+          "Test Coverage",
+          "Short description",
+          "Long description",
+          List.of("org.openrewrite.prethink.table.TestMapping")
+        ).withSample("all of them");
+        assertThat(exportContext.validate().isValid()).isFalse();
+    }
+
+    @Test
+    void rendersContextFromSnapshotOfDataTables(@TempDir Path dir) throws Exception {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dir.resolve("data-tables")));
+
+        new PopulateClassDescriptions().run(new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/test/java/FooTest.java"))
+            .text("package com.example;\npublic class FooTest {}")
+            .build()
+        )), ctx, 3, 1);
+        Path snapshot = dir.resolve("prethink.snapshot");
+        DataTableSnapshot.write(DataTableExecutionContextView.view(ctx).getDataTableStore(), snapshot);
+        assertThat(snapshot).exists();
+
+        // Rendering from the snapshot needs neither the sources nor the recipes that discovered the rows
+        Path project = Files.createDirectories(dir.resolve("project"));
+        RenderSnapshot.render(snapshot, project, ExportContext.of(
+          "Class Descriptions",
+          "Describes classes",
+          "Detailed description of classes",
+          List.of("org.openrewrite.prethink.table.ClassDescriptions")
+        ));
+
+        assertThat(Files.readString(project.resolve(".moderne/context/class-descriptions.csv")))
+          .contains("com.acme.OrderService")
+          .contains("Places and cancels orders, publishing an event for each.")
+          .contains("com.acme.OrderRepository");
+        assertThat(Files.readString(project.resolve(".moderne/context/class-descriptions.md")))
+          .contains("**Rows:** 3")
+          .contains("10 – 10");
+    }
+
+    @Test
+    void rejectsMalformedRowFilter() {
+        ExportContext exportContext = ExportContext.of(
+          "Test Coverage",
+          "Short description",
+          "Long description",
+          List.of("org.openrewrite.prethink.table.TestMapping")
+        ).withRowFilters(List.of("Test class~[unclosed"));
+        assertThat(exportContext.validate().isValid()).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedBudget() {
+        ExportContext exportContext = ExportContext.of(
+          "Test Coverage",
+          "Short description",
+          "Long description",
+          List.of("org.openrewrite.prethink.table.TestMapping")
+        ).withBudget("lots");
+        assertThat(exportContext.validate().isValid()).isFalse();
+    }
+
     /**
      * Populates the CALM-architecture data tables (grouped {@code "architecture"})
      * the same way the production discovery recipes do, so that the real
@@ -535,7 +1732,7 @@ class ExportContextTest implements RewriteTest {
 
         Recipe composite = new CompositeRecipe(List.of(
           new PopulateArchitectureTables(),
-          new UpdatePrethinkContext(null, null)
+          new UpdatePrethinkContext(null, null, null)
         ));
 
         InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
@@ -571,7 +1768,7 @@ class ExportContextTest implements RewriteTest {
             .recipes(
               new PopulateTestMappingA(),
               new PopulateTestMappingB(),
-              new ExportContext(
+              ExportContext.of(
                 "Test Coverage",
                 "Maps tests to implementations",
                 "Detailed description of test coverage context",
@@ -617,6 +1814,24 @@ class ExportContextTest implements RewriteTest {
                     .contains("test-mapping.csv");
                   return md;
               })
+          ),
+          // Expect the manifest describing both files
+          text(
+            doesNotExist(),
+            spec -> spec
+              .path(".moderne/context/manifest.json")
+              .after(manifest -> {
+                  assertThat(manifest)
+                    .contains("\"path\" : \".moderne/context/test-mapping.csv\"")
+                    .contains("\"table\" : \"org.openrewrite.prethink.table.TestMapping\"")
+                    .contains("\"rows\" : 2")
+                    .contains("\"path\" : \".moderne/context/test-coverage.md\"")
+                    .contains("\"context\" : \".moderne/context/test-coverage.md\"")
+                    .containsPattern("\"tokens\" : [1-9]")
+                    .containsPattern("\"hash\" : \"[0-9a-f]{64}\"")
+                    .contains("\"renderedAt\"");
+                  return manifest;
+              })
           )
         );
     }
@@ -628,9 +1843,10 @@ class ExportContextTest implements RewriteTest {
         // visited context CSV in getVisitor(), and again in the forced extra cycle --
         // 2 * (F + 2) reads per table (6 here, F = 1 context CSV). It now aggregates +
         // renders once per cycle and reuses that within the cycle. The ScanningRecipe
-        // accumulator is per-cycle (stored on the per-cycle root cursor), so the export
-        // runs in cycle 2 and the forced cycle 3 -> exactly 2 reads of the one
-        // referenced table, independent of how many context files are visited.
+        // accumulator is per-cycle (stored on the per-cycle root cursor), and the run
+        // converges after the cycle-2 fill pass instead of forcing a cycle 3 -> exactly
+        // 1 read of the one referenced table, independent of how many context files are
+        // visited.
         AtomicInteger getRowsCalls = new AtomicInteger();
         DataTableStore countingStore = new DataTableStore() {
             final InMemoryDataTableStore delegate = new InMemoryDataTableStore();
@@ -667,7 +1883,7 @@ class ExportContextTest implements RewriteTest {
             public List<Recipe> getRecipeList() {
                 return List.of(
                   new PopulateTestMappingA(),
-                  new ExportContext(
+                  ExportContext.of(
                     "Test Coverage",
                     "Maps tests to implementations",
                     "Detailed description of test coverage context",
@@ -690,8 +1906,94 @@ class ExportContextTest implements RewriteTest {
         pipeline.run(lss, ctx, 3, 1);
 
         assertThat(getRowsCalls.get())
-          .as("ExportContext must read each referenced table once per cycle (cycles 2 and 3), "
+          .as("ExportContext must read each referenced table once, in the cycle-2 fill pass, "
               + "not once per visited context file (which was 2*(F+2) = 6 before memoization)")
+          .isEqualTo(1);
+    }
+
+    /**
+     * Records the highest cycle the scheduler ran, so a test can assert how many cycles a
+     * composite needed.
+     */
+    @Getter
+    public static class RecordLastCycle extends Recipe {
+        transient AtomicInteger lastCycle = new AtomicInteger();
+
+        String displayName = "Record last cycle";
+        String description = "Records the highest cycle in which this recipe's visitor ran.";
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getVisitor() {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(Tree tree, ExecutionContext ctx) {
+                    lastCycle.accumulateAndGet(ctx.getCycle(), Math::max);
+                    return tree;
+                }
+            };
+        }
+    }
+
+    /**
+     * Both ExportContext and GenerateCalmArchitecture fill their cycle-1 placeholders in
+     * cycle 2. That fill is a change, so unless they report convergence afterward the
+     * scheduler enrolls every recipe in a third cycle that does nothing. Everything the
+     * composite produces, including the agent config and .gitignore that read the filled
+     * context, must be complete by the end of cycle 2.
+     */
+    @Test
+    void updatePrethinkContextFinishesInTwoCycles(@TempDir Path dataTablesDir) {
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        DataTableExecutionContextView.view(ctx)
+          .setDataTableStore(new CsvDataTableStore(dataTablesDir));
+
+        RecordLastCycle recordLastCycle = new RecordLastCycle();
+        Recipe composite = new CompositeRecipe(List.of(
+          new PopulateArchitectureTables(),
+          new UpdatePrethinkContext(null, null, null),
+          recordLastCycle
+        ));
+
+        InMemoryLargeSourceSet sources = new InMemoryLargeSourceSet(List.of(
+          PlainText.builder()
+            .sourcePath(Path.of("src/main/java/com/example/UserController.java"))
+            .text("package com.example;\npublic class UserController {}")
+            .build(),
+          PlainText.builder()
+            .sourcePath(Path.of("src/main/java/com/example/UserService.java"))
+            .text("package com.example;\npublic class UserService {}")
+            .build(),
+          PlainText.builder()
+            .sourcePath(Path.of("README.md"))
+            .text("# Demo\n")
+            .build(),
+          PlainText.builder()
+            .sourcePath(Path.of(".gitignore"))
+            .text("build/\n.moderne/\n")
+            .build()
+        ));
+        RecipeRun run = composite.run(sources, ctx, 3, 1);
+
+        assertThat(recordLastCycle.getLastCycle().get())
+          .as("UpdatePrethinkContext must converge after its cycle-2 fill pass")
           .isEqualTo(2);
+
+        java.util.Map<Path, SourceFile> after = new java.util.HashMap<>();
+        for (Result result : run.getChangeset().getAllResults()) {
+            if (result.getAfter() != null) {
+                after.put(result.getAfter().getSourcePath(), result.getAfter());
+            }
+        }
+        assertThat(after.get(Path.of(".moderne/context/service-endpoints.csv")).printAll())
+          .contains("com.example.UserController");
+        assertThat(after.get(Path.of(".moderne/context/calm-architecture.json")).printAll())
+          .contains("user-controller");
+        assertThat(after.get(Path.of("CLAUDE.md")))
+          .as("the agent config must reference the context rendered in cycle 2, not wait for cycle 3")
+          .isNotNull();
+        assertThat(after.get(Path.of("CLAUDE.md")).printAll())
+          .contains("architecture.md");
+        assertThat(after.get(Path.of(".gitignore")).printAll())
+          .contains("!.moderne/context/");
     }
 }
@@ -16,12 +16,35 @@
 package org.openrewrite.prethink;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.CsvDataTableStore;
+import org.openrewrite.DataTableExecutionContextView;
 import org.openrewrite.DocumentExample;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.RecipeRun;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.config.CompositeRecipe;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
 import org.openrewrite.test.RecipeSpec;
 import org.openrewrite.test.RewriteTest;
+import org.openrewrite.text.PlainText;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
@@ -68,7 +91,7 @@ class UpdateAgentConfigTest implements RewriteTest {
             spec -> spec.path("CLAUDE.md").after(after ->
               assertThat(after)
                 // Check section markers
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 // Check section content
                 .contains("## Moderne Prethink Context")
@@ -120,7 +143,7 @@ class UpdateAgentConfigTest implements RewriteTest {
             spec -> spec.path(".github/copilot-instructions.md").after(after ->
               assertThat(after)
                 // Check section markers
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 // Check section content
                 .contains("## Moderne Prethink Context")
@@ -181,7 +204,7 @@ class UpdateAgentConfigTest implements RewriteTest {
                 .contains("code-comprehension.md")
                 .contains("test-coverage.md")
                 // Check section structure
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 .actual())
           )
@@ -234,13 +257,162 @@ class UpdateAgentConfigTest implements RewriteTest {
                 // Other section should still be there
                 .contains("## Other Section")
                 // Verify section structure
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 .actual())
           )
         );
     }
 
+    @Test
+    void collapsesDuplicatedContextSections() {
+        rewriteRun(
+          text(
+            //language=Markdown
+            """
+              # Test Coverage
+
+              ## Maps tests to implementations
+
+              This context maps tests.
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+
+              <!-- prethink-context -->
+              Old Context
+              <!-- /prethink-context -->
+
+              ## Other Section
+
+              <!-- prethink-context -->
+              Older Context
+              <!-- /prethink-context -->
+
+              ## Last Section
+              """,
+            spec -> spec.path("CLAUDE.md").after(after -> {
+                assertThat(after.split("<!-- prethink-context", -1)).hasSize(2);
+                assertThat(after.split("<!-- /prethink-context -->", -1)).hasSize(2);
+                assertThat(after)
+                  .contains("test-coverage.md")
+                  .doesNotContain("Old Context")
+                  .doesNotContain("Older Context")
+                  .contains("## Other Section")
+                  .contains("## Last Section");
+                assertThat(after.indexOf("test-coverage.md")).isLessThan(after.indexOf("## Other Section"));
+                return after;
+            })
+          )
+        );
+    }
+
+    @Test
+    void unbalancedBeginMarkerDoesNotSwallowRestOfFile() {
+        rewriteRun(
+          text(
+            //language=Markdown
+            """
+              # Test Coverage
+
+              ## Maps tests to implementations
+
+              This context maps tests.
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+
+              <!-- prethink-context -->
+              ## Build
+
+              Run the build with Gradle.
+              """,
+            spec -> spec.path("CLAUDE.md").after(after -> {
+                assertThat(after.split("<!-- prethink-context", -1)).hasSize(2);
+                assertThat(after)
+                  .contains("test-coverage.md")
+                  .contains("<!-- /prethink-context -->")
+                  .contains("## Build")
+                  .contains("Run the build with Gradle.");
+                return after;
+            })
+          )
+        );
+    }
+
+    @Test
+    void leavesSectionUntouchedWhenInputsHashMatches() {
+        String contextMarkdown = """
+          # Test Coverage
+
+          ## Maps tests to implementations
+
+          This context maps tests.
+          """;
+        AtomicReference<String> generated = new AtomicReference<>();
+        rewriteRun(
+          text(contextMarkdown, spec -> spec.path(".moderne/context/test-coverage.md")),
+          text(
+            "# Project Documentation\n",
+            spec -> spec.path("CLAUDE.md").after(after -> {
+                generated.set(after);
+                return after;
+            })
+          )
+        );
+
+        // A hand edit inside the section survives, because the stamped hash shows
+        // that the section was already rendered from the same inputs
+        String edited = generated.get().replace("| Test Coverage |", "| Test Coverage (edited) |");
+        assertThat(edited).isNotEqualTo(generated.get());
+        rewriteRun(
+          text(contextMarkdown, spec -> spec.path(".moderne/context/test-coverage.md")),
+          text(edited, spec -> spec.path("CLAUDE.md"))
+        );
+    }
+
+    @Test
+    void regeneratesSectionWhenInputsHashDiffers() {
+        rewriteRun(
+          text(
+            //language=Markdown
+            """
+              # Test Coverage
+
+              ## Maps tests to implementations
+
+              This context maps tests.
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+
+              <!-- prethink-context hash=0000000000000000 -->
+              | Old Context | Old description | [`old-context.md`](.moderne/context/old-context.md) |
+              <!-- /prethink-context -->
+              """,
+            spec -> spec.path("CLAUDE.md").after(after ->
+              assertThat(after)
+                .contains("test-coverage.md")
+                .doesNotContain("old-context.md")
+                .doesNotContain("hash=0000000000000000")
+                .containsPattern("<!-- prethink-context hash=[0-9a-f]{16} -->")
+                .actual())
+          )
+        );
+    }
+
     @Test
     void createsClaudeMdIfNoConfigExists() {
         rewriteRun(
@@ -378,7 +550,7 @@ class UpdateAgentConfigTest implements RewriteTest {
               """,
             spec -> spec.path("CLAUDE.md").after(after ->
               assertThat(after)
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("| Test Coverage |")
                 .contains("# Project Documentation")
                 .actual())
@@ -411,7 +583,7 @@ class UpdateAgentConfigTest implements RewriteTest {
               """,
             spec -> spec.path("CLAUDE.md").after(after ->
               assertThat(after)
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("| Test Coverage |")
                 .actual())
           ),
@@ -424,7 +596,7 @@ class UpdateAgentConfigTest implements RewriteTest {
               """,
             spec -> spec.path("AGENTS.md").after(after ->
               assertThat(after)
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("| Test Coverage |")
                 .actual())
           ),
@@ -462,7 +634,7 @@ class UpdateAgentConfigTest implements RewriteTest {
               """,
             spec -> spec.path(".windsurfrules").after(after ->
               assertThat(after)
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("| Test Coverage |")
                 .contains("# Windsurf rules")
                 .actual())
@@ -505,7 +677,7 @@ class UpdateAgentConfigTest implements RewriteTest {
             spec -> spec.path("CLAUDE.md").after(after ->
               assertThat(after)
                 // Check section markers
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 // Custom template content is used
                 .contains("## My Task Context")
@@ -557,7 +729,7 @@ class UpdateAgentConfigTest implements RewriteTest {
             spec -> spec.path("CLAUDE.md").after(after ->
               assertThat(after)
                 // Check section markers
-                .contains("<!-- prethink-context -->")
+                .contains("<!-- prethink-context hash=")
                 .contains("<!-- /prethink-context -->")
                 // Custom template content is used
                 .contains("## My Task Context")
@@ -573,6 +745,48 @@ class UpdateAgentConfigTest implements RewriteTest {
         );
     }
 
+    @Test
+    void rendersKnownPlaceholdersAndKeepsUnknownOnesVerbatim() {
+        rewriteRun(
+          spec -> spec.recipe(new UpdateAgentConfig(null,
+            //language=Markdown
+            """
+              ## Context
+
+              {{CONTEXT_TABLE}}
+
+              Architecture: {{CALM_SUMMARY}}
+              Left alone: {{PROJECT_NAME}} and {{ not a placeholder }}
+
+              {{CONTEXT_TABLE}}
+              """)),
+          text(
+            //language=Markdown
+            """
+              # Test Coverage
+
+              ## Maps test methods to implementation methods they verify
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+              """,
+            spec -> spec.path("CLAUDE.md").after(after -> {
+                assertThat(after)
+                  // No CALM file was rendered alongside, so the summary is empty
+                  .contains("Architecture: \n")
+                  .contains("Left alone: {{PROJECT_NAME}} and {{ not a placeholder }}");
+                // A repeated placeholder is rendered at each occurrence
+                assertThat(after.split("\\| Test Coverage \\|", -1)).hasSize(3);
+                return after;
+            })
+          )
+        );
+    }
+
     @Test
     void noChangesWhenNoContextFiles() {
         rewriteRun(
@@ -589,6 +803,100 @@ class UpdateAgentConfigTest implements RewriteTest {
         );
     }
 
+    @Test
+    void readsTitleAndDescriptionFromFrontMatter() {
+        rewriteRun(
+          text(
+            //language=Markdown
+            """
+              ---
+              title: "Test Coverage"
+              description: Maps tests to implementations
+              rows: 42
+              ---
+              # Ignored Heading
+
+              ## Ignored subheading
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              ---
+              rows: 7
+              ---
+              # Service Endpoints
+
+              ## REST endpoints exposed by the service
+              """,
+            spec -> spec.path(".moderne/context/service-endpoints.md")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+              """,
+            spec -> spec.path("CLAUDE.md").after(after ->
+              assertThat(after)
+                .contains("| Test Coverage | Maps tests to implementations |")
+                .contains("| Service Endpoints | REST endpoints exposed by the service |")
+                .doesNotContain("Ignored")
+                .actual())
+          )
+        );
+    }
+
+    @Test
+    void showsEstimatedTokensFromContextManifest() {
+        rewriteRun(
+          text(
+            //language=Markdown
+            """
+              # Test Coverage
+
+              ## Maps tests to implementations
+              """,
+            spec -> spec.path(".moderne/context/test-coverage.md")
+          ),
+          text(
+            //language=json
+            """
+              {
+                "files" : [ {
+                  "path" : ".moderne/context/test-coverage.md",
+                  "bytes" : 480,
+                  "tokens" : 120,
+                  "hash" : "0000000000000000000000000000000000000000000000000000000000000000",
+                  "renderedAt" : "2025-01-01T00:00:00Z"
+                }, {
+                  "path" : ".moderne/context/test-mapping.csv",
+                  "context" : ".moderne/context/test-coverage.md",
+                  "table" : "org.openrewrite.prethink.table.TestMapping",
+                  "rows" : 40,
+                  "bytes" : 5600,
+                  "tokens" : 1380,
+                  "hash" : "1111111111111111111111111111111111111111111111111111111111111111",
+                  "renderedAt" : "2025-01-01T00:00:00Z"
+                } ]
+              }
+              """,
+            spec -> spec.path(".moderne/context/manifest.json")
+          ),
+          text(
+            //language=Markdown
+            """
+              # Project Documentation
+              """,
+            spec -> spec.path("CLAUDE.md").after(after ->
+              assertThat(after)
+                .contains("| Context | Description | Details | Tokens |")
+                .contains("| Test Coverage | Maps tests to implementations | [`test-coverage.md`](.moderne/context/test-coverage.md) | ~1.5k |")
+                .actual())
+          )
+        );
+    }
+
     @Test
     void ignoresCsvFilesWithoutMarkdown() {
         // CSV files alone should not trigger updates - only markdown description files
@@ -611,4 +919,111 @@ class UpdateAgentConfigTest implements RewriteTest {
           )
         );
     }
+
+    @Test
+    void concurrentScanMatchesSerialScan() throws Exception {
+        List<SourceFile> sources = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            sources.add(PlainText.builder()
+              .sourcePath(Paths.get(".moderne/context/context-" + i + ".md"))
+              .text("# Context " + i + "\n\n## Description " + i + "\n")
+              .build());
+            sources.add(PlainText.builder()
+              .sourcePath(Paths.get("module-" + i + "/" + (i % 2 == 0 ? "CLAUDE.md" : "AGENTS.md")))
+              .text("# Module " + i + "\n")
+              .build());
+            sources.add(PlainText.builder()
+              .sourcePath(Paths.get("module-" + i + "/README.md"))
+              .text("# Readme " + i + "\n")
+              .build());
+        }
+
+        UpdateAgentConfig recipe = new UpdateAgentConfig(null, null);
+        ExecutionContext ctx = new InMemoryExecutionContext();
+
+        UpdateAgentConfig.Accumulator serial = recipe.getInitialValue(ctx);
+        TreeVisitor<?, ExecutionContext> serialScanner = recipe.getScanner(serial);
+        for (SourceFile source : sources) {
+            serialScanner.visit(source, ctx);
+        }
+
+        UpdateAgentConfig.Accumulator concurrent = recipe.getInitialValue(ctx);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    // Each thread gets its own visitor instance, as a parallel scheduler would.
+                    TreeVisitor<?, ExecutionContext> scanner = recipe.getScanner(concurrent);
+                    for (int i = offset; i < sources.size(); i += threads) {
+                        scanner.visit(sources.get(i), ctx);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(concurrent.getContextEntries())
+          .hasSize(5_000)
+          .isEqualTo(serial.getContextEntries());
+        assertThat(concurrent.getFoundConfigFiles())
+          .hasSize(5_000)
+          .isEqualTo(serial.getFoundConfigFiles());
+    }
+
+    /**
+     * Recipe instances are shared between runs, for example across repositories in one worker,
+     * so the accumulators and cycle bookkeeping of one run must never be seen by another. Every
+     * concurrent run of a single UpdatePrethinkContext fills its own context and agent config.
+     */
+    @Test
+    void concurrentRunsOfSharedUpdatePrethinkContextEachFillTheirContext(@TempDir Path dataTablesDir) throws Exception {
+        Recipe composite = new CompositeRecipe(List.of(
+          new ExportContextTest.PopulateArchitectureTables(),
+          new UpdatePrethinkContext(null, null, null)
+        ));
+
+        int runs = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<Path, String>>> futures = new ArrayList<>();
+            for (int r = 0; r < runs; r++) {
+                Path store = Files.createDirectories(dataTablesDir.resolve("run-" + r));
+                futures.add(executor.submit(() -> {
+                    ExecutionContext ctx = new InMemoryExecutionContext();
+                    DataTableExecutionContextView.view(ctx).setDataTableStore(new CsvDataTableStore(store));
+                    RecipeRun run = composite.run(new InMemoryLargeSourceSet(List.of(
+                      PlainText.builder()
+                        .sourcePath(Paths.get("src/main/java/com/example/UserController.java"))
+                        .text("package com.example;\npublic class UserController {}")
+                        .build()
+                    )), ctx, 3, 1);
+                    Map<Path, String> after = new HashMap<>();
+                    for (Result result : run.getChangeset().getAllResults()) {
+                        if (result.getAfter() != null) {
+                            after.put(result.getAfter().getSourcePath(), result.getAfter().printAll());
+                        }
+                    }
+                    return after;
+                }));
+            }
+            for (Future<Map<Path, String>> future : futures) {
+                Map<Path, String> after = future.get();
+                assertThat(after.get(Paths.get(".moderne/context/service-endpoints.csv")))
+                  .contains("com.example.UserController");
+                assertThat(after.get(Paths.get(".moderne/context/calm-architecture.json")))
+                  .contains("demo-app");
+                assertThat(after.get(Paths.get("CLAUDE.md")))
+                  .contains("architecture.md");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -15,12 +15,16 @@
  */
 package org.openrewrite.prethink;
 
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.Test;
 import org.openrewrite.DocumentExample;
 import org.openrewrite.test.RecipeSpec;
 import org.openrewrite.test.RewriteTest;
 
+import java.lang.management.ManagementFactory;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.openrewrite.test.SourceSpecs.text;
 
 class UpdateGitignoreTest implements RewriteTest {
@@ -96,6 +100,38 @@ class UpdateGitignoreTest implements RewriteTest {
         );
     }
 
+    @Test
+    void usesRowCountsFromContextManifest() {
+        rewriteRun(
+          text(
+            """
+              .moderne/
+              """,
+            """
+              .moderne/*
+              !.moderne/context/
+              """,
+            spec -> spec.path(".gitignore")
+          ),
+          text(
+            //language=json
+            """
+              {
+                "files" : [ {
+                  "path" : ".moderne/context/test-mapping.csv",
+                  "table" : "org.openrewrite.prethink.table.TestMapping",
+                  "rows" : 3,
+                  "bytes" : 120,
+                  "hash" : "0000000000000000000000000000000000000000000000000000000000000000",
+                  "renderedAt" : "2025-01-01T00:00:00Z"
+                } ]
+              }
+              """,
+            spec -> spec.path(".moderne/context/manifest.json")
+          )
+        );
+    }
+
     @Test
     void addsExceptionWhenWildcardExistsWithoutException() {
         rewriteRun(
@@ -331,4 +367,51 @@ class UpdateGitignoreTest implements RewriteTest {
         assertThat(result).isEqualTo("# Moderne\n.moderne/*\n!.moderne/context/\n");
     }
 
+    @Test
+    void hasDataRowsSkipsCommentsAndHeader() {
+        assertThat(UpdateGitignore.hasDataRows("Header\ndata row\n")).isTrue();
+        assertThat(UpdateGitignore.hasDataRows("# comment\nHeader\n# comment\ndata row")).isTrue();
+        assertThat(UpdateGitignore.hasDataRows("Header\n")).isFalse();
+        assertThat(UpdateGitignore.hasDataRows("Header\n\n\n")).isFalse();
+        assertThat(UpdateGitignore.hasDataRows("# comment\nHeader")).isFalse();
+        assertThat(UpdateGitignore.hasDataRows("")).isFalse();
+    }
+
+    @Test
+    void hasDataRowsTreatsQuotedNewlinesInHeaderAsHeader() {
+        assertThat(UpdateGitignore.hasDataRows("\"Multi\nline\",\"Other \"\"quoted\"\"\nheader\"\n")).isFalse();
+        assertThat(UpdateGitignore.hasDataRows("\"Multi\nline\",Other\ndata row\n")).isTrue();
+    }
+
+    @Test
+    void hasDataRowsScansLargeCsvWithoutAllocating() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean,
+          "needs a JVM that measures the memory each thread allocates");
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+          "needs thread allocated memory measurement enabled");
+
+        // A header whose quoted field spans millions of lines, followed by a single data row
+        // (scaled down from a 500 MB file to keep the test's own heap use modest)
+        int lines = 8_000_000;
+        StringBuilder sb = new StringBuilder(lines * 2 + 32);
+        sb.append('"');
+        for (int i = 0; i < lines; i++) {
+            sb.append("x\n");
+        }
+        sb.append("\",Other\n");
+        String headerOnly = sb.toString();
+        String withData = sb.append("data row\n").toString();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        boolean headerOnlyHasData = UpdateGitignore.hasDataRows(headerOnly);
+        boolean withDataHasData = UpdateGitignore.hasDataRows(withData);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(headerOnlyHasData).isFalse();
+        assertThat(withDataHasData).isTrue();
+        assertThat(allocated)
+          .as("scanning must not split or copy the CSV")
+          .isLessThan(64 * 1024);
+    }
 }
@@ -100,12 +100,21 @@ class GenerateCalmArchitectureTest implements RewriteTest {
         rewriteRun(
           spec -> spec
             .recipes(new PopulateServiceEndpoints(), new GenerateCalmArchitecture())
-            .cycles(3)
-            .expectedCyclesThatMakeChanges(3), // DEBUG: see what's happening
+            .cycles(2)
+            .expectedCyclesThatMakeChanges(2),
           text(
             "package com.example;\npublic class GreetingController {}",
             spec -> spec.path("src/main/java/com/example/GreetingController.java")
           ),
+          text(
+            null,
+            spec -> spec
+              .path(".moderne/context/manifest.json")
+              .after(manifest -> {
+                  assertThat(manifest).contains("\"path\" : \".moderne/context/calm-architecture.json\"");
+                  return manifest;
+              })
+          ),
           text(
             null, // Generated file - expect any non-null content
             """
@@ -199,12 +208,21 @@ class GenerateCalmArchitectureTest implements RewriteTest {
         rewriteRun(
           spec -> spec
             .recipes(new PopulateServiceEndpoints(), new GenerateCalmArchitecture())
-            .cycles(3)
-            .expectedCyclesThatMakeChanges(3), // DEBUG: see what's happening
+            .cycles(2)
+            .expectedCyclesThatMakeChanges(2),
           text(
             "package com.example;\npublic class GreetingController {}",
             spec -> spec.path("src/main/java/com/example/GreetingController.java")
           ),
+          text(
+            null,
+            spec -> spec
+              .path(".moderne/context/manifest.json")
+              .after(manifest -> {
+                  assertThat(manifest).contains("\"path\" : \".moderne/context/calm-architecture.json\"");
+                  return manifest;
+              })
+          ),
           text(
             null,
             spec -> spec
@@ -317,8 +335,8 @@ class GenerateCalmArchitectureTest implements RewriteTest {
               new PopulateDatabaseConnections(),
               new GenerateCalmArchitecture()
             )
-            .cycles(3)
-            .expectedCyclesThatMakeChanges(3),
+            .cycles(2)
+            .expectedCyclesThatMakeChanges(2),
           text(
             "package com.example.order.controller;\npublic class OrderController {}",
             spec -> spec.path("src/main/java/com/example/order/controller/OrderController.java")
@@ -327,6 +345,15 @@ class GenerateCalmArchitectureTest implements RewriteTest {
             "package com.example.order.repository;\npublic interface OrderRepository {}",
             spec -> spec.path("src/main/java/com/example/order/repository/OrderRepository.java")
           ),
+          text(
+            null,
+            spec -> spec
+              .path(".moderne/context/manifest.json")
+              .after(manifest -> {
+                  assertThat(manifest).contains("\"path\" : \".moderne/context/calm-architecture.json\"");
+                  return manifest;
+              })
+          ),
           text(
             null,
             spec -> spec